@@ -0,0 +1,48 @@
+package io.zeebe.flakytestextractor.benchmarks;
+
+import io.zeebe.flakytestextractor.ExtendedReportTestSuite;
+import io.zeebe.flakytestextractor.ExtendedTestSuiteXMLParser;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Parses a report with a parser instance that is reused across invocations, like the plugin. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ParserBenchmark {
+
+  private ExtendedTestSuiteXMLParser parser;
+
+  private ExtendedTestSuiteXMLParser flakyOutputParser;
+
+  @Setup
+  public void createParsers() {
+    parser = new ExtendedTestSuiteXMLParser(ReportState.LOG);
+    flakyOutputParser =
+        new ExtendedTestSuiteXMLParser(ReportState.LOG).setCaptureOutputOfFlakyTestsOnly(true);
+  }
+
+  @Benchmark
+  public List<ExtendedReportTestSuite> parse(ReportState report) throws Exception {
+    return parser.parse(report.reportFile.getAbsolutePath());
+  }
+
+  @Benchmark
+  public List<ExtendedReportTestSuite> parseCapturingOutputOfFlakyTestsOnly(ReportState report)
+      throws Exception {
+    return flakyOutputParser.parse(report.reportFile.getAbsolutePath());
+  }
+}
@@ -0,0 +1,84 @@
+package io.zeebe.flakytestextractor.benchmarks;
+
+import io.zeebe.flakytestextractor.ExtendedReportTestSuite;
+import io.zeebe.flakytestextractor.ExtendedTestSuiteXMLParser;
+import io.zeebe.flakytestextractor.ReportTransformer;
+import io.zeebe.flakytestextractor.SurefireReportGenerator;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Report shared by all benchmarks, written by the {@link SurefireReportGenerator} of the plugin's
+ * tests with its default share of errors and skipped tests. The size of the report file follows
+ * from the number of test cases and the output per test case; the size of the written output
+ * additionally depends on the share of flaky test cases.
+ */
+@State(Scope.Benchmark)
+public class ReportState {
+
+  static final Log LOG = new SystemStreamLog();
+
+  private static final long SEED = 42L;
+
+  @Param({"100", "10000"})
+  public int testCases;
+
+  @Param({"0.0", "0.01", "0.5"})
+  public double flakyRatio;
+
+  @Param({"0", "4096"})
+  public int systemOutBytes;
+
+  File directory;
+
+  File reportFile;
+
+  /** Test suites of the report, as passed to the transformer */
+  List<ExtendedReportTestSuite> testSuites;
+
+  /** Test suites with only the flaky tests, as passed to the writer */
+  List<ExtendedReportTestSuite> flakyTestSuites;
+
+  @Setup(Level.Trial)
+  public void writeReport() throws Exception {
+    directory = Files.createTempDirectory("flaky-test-extractor-benchmark").toFile();
+    reportFile =
+        new SurefireReportGenerator(SEED)
+            .setTestCases(testCases)
+            .setFlakyRatio(flakyRatio)
+            .setSystemOutBytes(systemOutBytes)
+            .writeReport(directory, 0);
+
+    testSuites = new ExtendedTestSuiteXMLParser(LOG).parse(reportFile.getAbsolutePath());
+
+    final ReportTransformer transformer = new ReportTransformer();
+    flakyTestSuites = new ArrayList<>();
+    for (ExtendedReportTestSuite testSuite : testSuites) {
+      final Optional<ExtendedReportTestSuite> flakyTestSuite = transformer.transform(testSuite);
+      flakyTestSuite.ifPresent(flakyTestSuites::add);
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void deleteReport() throws IOException {
+    final File[] files = directory.listFiles();
+    if (files != null) {
+      for (File file : files) {
+        Files.delete(file.toPath());
+      }
+    }
+    Files.delete(directory.toPath());
+  }
+}
@@ -0,0 +1,31 @@
+package io.zeebe.flakytestextractor.benchmarks;
+
+import io.zeebe.flakytestextractor.ExtendedReportTestSuite;
+import io.zeebe.flakytestextractor.ReportTransformer;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/** Transforms the parsed test suites of a report into test suites with only the flaky tests. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class TransformerBenchmark {
+
+  private static final ReportTransformer TRANSFORMER = new ReportTransformer();
+
+  @Benchmark
+  public void transform(ReportState report, Blackhole blackhole) {
+    for (ExtendedReportTestSuite testSuite : report.testSuites) {
+      blackhole.consume(TRANSFORMER.transform(testSuite));
+    }
+  }
+}
@@ -0,0 +1,29 @@
+package io.zeebe.flakytestextractor.benchmarks;
+
+import io.zeebe.flakytestextractor.XmlReporterWriter;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Writes the flaky tests of a report. The output file is overwritten by every invocation, so the
+ * numbers include writing to the file system, as in the plugin.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class WriterBenchmark {
+
+  @Benchmark
+  public void writeXMLReport(ReportState report) {
+    new XmlReporterWriter(report.directory)
+        .writeXMLReport(report.reportFile, report.flakyTestSuites);
+  }
+}
@@ -0,0 +1,188 @@
+package io.zeebe.flakytestextractor;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Passes the extracted flaky tests to the sinks on a background thread, so that the parsing of the
+ * next reports does not wait for the output of the previous ones. The reports are handed over
+ * through a bounded queue: when the sinks fall behind, {@link #submit(FlakyReport)} blocks until
+ * there is room again, which keeps the number of parsed reports held in memory bounded.
+ *
+ * <p>Whatever accumulated in the queue while the sinks were busy is passed to them as one batch. A
+ * sink that fails is logged and skipped for the remaining reports, the other sinks are not
+ * affected. An {@link Error} of a sink ends the output of all sinks instead; it is rethrown by the
+ * next call of {@link #submit(FlakyReport)} or {@link #close()}, so that the build fails rather
+ * than waiting for room in the queue forever.
+ */
+public class AsyncSinkDispatcher implements Closeable {
+
+  private static final FlakyReport END_OF_REPORTS =
+      new FlakyReport(null, null, Collections.emptyList());
+
+  private final List<FlakyTestSink> sinks;
+
+  private final List<FlakyTestSink> failedSinks = new ArrayList<>();
+
+  private final BlockingQueue<FlakyReport> queue;
+
+  private final int maxBatchSize;
+
+  private final Log logger;
+
+  private final Thread thread;
+
+  /** Set by the background thread if it ended unexpectedly */
+  private volatile Throwable failure;
+
+  private boolean closed;
+
+  /**
+   * Starts the background thread.
+   *
+   * @param sinks sinks to pass the reports to
+   * @param queueCapacity number of reports that can wait for the sinks before {@link
+   *     #submit(FlakyReport)} blocks
+   * @param logger logger for failing sinks
+   */
+  public AsyncSinkDispatcher(List<FlakyTestSink> sinks, int queueCapacity, Log logger) {
+    if (queueCapacity < 1) {
+      throw new IllegalArgumentException("queueCapacity must be at least 1, was " + queueCapacity);
+    }
+    this.sinks = sinks;
+    this.queue = new ArrayBlockingQueue<>(queueCapacity);
+    this.maxBatchSize = queueCapacity;
+    this.logger = logger;
+
+    thread = new Thread(this::dispatch, "flaky-test-extractor-output");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  /**
+   * Queues a report for the sinks, waiting for room in the queue if necessary.
+   *
+   * @param report report with flaky tests
+   * @throws IllegalStateException if the dispatcher is closed
+   * @throws Error if a sink failed with an error
+   */
+  public void submit(FlakyReport report) {
+    if (closed) {
+      throw new IllegalStateException("Dispatcher is closed");
+    }
+    rethrowFailure();
+    put(report);
+  }
+
+  /**
+   * Waits until all queued reports were passed to the sinks, then closes the sinks. Sinks that
+   * cannot be closed are logged. Closing the dispatcher again has no effect.
+   *
+   * @throws Error if a sink failed with an error
+   */
+  @Override
+  public void close() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+
+    try {
+      put(END_OF_REPORTS);
+      thread.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      logger.warn("Interrupted while waiting for the output of the flaky tests");
+    } finally {
+      for (FlakyTestSink sink : sinks) {
+        try {
+          sink.close();
+        } catch (Exception e) {
+          logger.error("Could not complete output of " + sink.getClass().getSimpleName(), e);
+        }
+      }
+    }
+    rethrowFailure();
+  }
+
+  private void put(FlakyReport report) {
+    try {
+      // the background thread takes no more reports once it failed
+      while (!queue.offer(report, 100, TimeUnit.MILLISECONDS)) {
+        rethrowFailure();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while queueing the flaky tests for output", e);
+    }
+  }
+
+  private void rethrowFailure() {
+    final Throwable failure = this.failure;
+    if (failure instanceof Error) {
+      throw (Error) failure;
+    } else if (failure != null) {
+      throw new IllegalStateException("Output of the flaky tests failed", failure);
+    }
+  }
+
+  private void dispatch() {
+    try {
+      dispatchUntilEnd();
+    } catch (Throwable t) {
+      // exceptions of single sinks are handled per sink, whatever gets here ends the output
+      failure = t;
+    }
+  }
+
+  private void dispatchUntilEnd() {
+    final List<FlakyReport> batch = new ArrayList<>(maxBatchSize);
+    boolean ended = false;
+    while (!ended) {
+      try {
+        batch.add(queue.take());
+      } catch (InterruptedException e) {
+        // only the dispatcher itself ends the thread
+        continue;
+      }
+      queue.drainTo(batch, maxBatchSize - 1);
+
+      // nothing is queued after the end, so it can only be the last report of a batch
+      ended = batch.get(batch.size() - 1) == END_OF_REPORTS;
+      if (ended) {
+        batch.remove(batch.size() - 1);
+      }
+      if (!batch.isEmpty()) {
+        writeBatch(batch);
+      }
+      batch.clear();
+    }
+  }
+
+  private void writeBatch(List<FlakyReport> batch) {
+    final List<FlakyReport> reports = Collections.unmodifiableList(batch);
+    for (FlakyTestSink sink : sinks) {
+      if (failedSinks.contains(sink)) {
+        continue;
+      }
+      try {
+        sink.write(reports);
+      } catch (Exception e) {
+        failedSinks.add(sink);
+        logger.error(
+            "Skipping further output of "
+                + sink.getClass().getSimpleName()
+                + " because it failed to write "
+                + reports.size()
+                + " reports",
+            e);
+      }
+    }
+  }
+}
@@ -0,0 +1,30 @@
+package io.zeebe.flakytestextractor;
+
+/** Range of bytes in a file. */
+public final class ByteRange {
+
+  private final long position;
+
+  private final long length;
+
+  public ByteRange(long position, long length) {
+    this.position = position;
+    this.length = length;
+  }
+
+  /** @return offset of the first byte in the file */
+  public long getPosition() {
+    return position;
+  }
+
+  /** @return number of bytes */
+  public long getLength() {
+    return length;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public String toString() {
+    return "[" + position + ", " + (position + length) + ")";
+  }
+}
@@ -29,6 +29,12 @@ public class ExtendedReportTestCase {
   private String systemOut;
   private String systemError;
 
+  private ByteRange failureDetailRange;
+
+  private ByteRange systemOutRange;
+
+  private ByteRange systemErrorRange;
+
   private boolean hasFailure;
 
   private boolean isFlake = false;
@@ -130,6 +136,45 @@ public class ExtendedReportTestCase {
     return this;
   }
 
+  /**
+   * @return range of the failure detail in the report file the test case was parsed from, if it is
+   *     passed through instead of being read into {@link #getFailureDetail()}
+   */
+  public ByteRange getFailureDetailRange() {
+    return failureDetailRange;
+  }
+
+  public ExtendedReportTestCase setFailureDetailRange(ByteRange failureDetailRange) {
+    this.failureDetailRange = failureDetailRange;
+    return this;
+  }
+
+  /**
+   * @return range of the system output in the report file the test case was parsed from, if it is
+   *     passed through instead of being read into {@link #getSystemOut()}
+   */
+  public ByteRange getSystemOutRange() {
+    return systemOutRange;
+  }
+
+  public ExtendedReportTestCase setSystemOutRange(ByteRange systemOutRange) {
+    this.systemOutRange = systemOutRange;
+    return this;
+  }
+
+  /**
+   * @return range of the error output in the report file the test case was parsed from, if it is
+   *     passed through instead of being read into {@link #getSystemError()}
+   */
+  public ByteRange getSystemErrorRange() {
+    return systemErrorRange;
+  }
+
+  public ExtendedReportTestCase setSystemErrorRange(ByteRange systemErrorRange) {
+    this.systemErrorRange = systemErrorRange;
+    return this;
+  }
+
   public ExtendedReportTestCase setSkipped(String message) {
     hasFailure = false;
     isFlake = false;
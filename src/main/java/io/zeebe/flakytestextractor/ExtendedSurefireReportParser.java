@@ -2,14 +2,29 @@ package io.zeebe.flakytestextractor;
 
 import static org.apache.maven.surefire.shared.utils.StringUtils.split;
 
+import io.zeebe.flakytestextractor.ExtractionMetrics.Phase;
+import io.zeebe.flakytestextractor.ReportFingerprintCache.Fingerprint;
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import javax.xml.parsers.ParserConfigurationException;
 import org.apache.maven.plugin.logging.Log;
 import org.apache.maven.surefire.shared.utils.io.DirectoryScanner;
@@ -31,41 +46,321 @@ public class ExtendedSurefireReportParser {
 
   private final List<File> reportsDirectories;
 
+  private boolean prescan = false;
+
+  private int parserThreads = 1;
+
+  private boolean captureOutputOfFlakyTestsOnly = false;
+
+  private boolean passthrough = false;
+
+  private ParserEngine parserEngine = ParserEngine.SAX;
+
+  private int inputBufferSize = TestSuiteXMLParser.DEFAULT_INPUT_BUFFER_SIZE;
+
+  private ReportFingerprintCache fingerprintCache;
+
+  private Set<File> excludedReportFiles = Collections.emptySet();
+
+  private ExtractionMetrics metrics = new ExtractionMetrics();
+
   public ExtendedSurefireReportParser(List<File> reportsDirectories, Locale locale, Log logger) {
     this.reportsDirectories = reportsDirectories;
     this.logger = logger;
   }
 
+  /**
+   * Enables a byte-level prescan of each report file. Files that do not contain any flaky test
+   * results are skipped without being parsed and are not part of the result.
+   *
+   * @param prescan {@code true} to skip files without flaky test results
+   * @return this parser
+   */
+  public ExtendedSurefireReportParser setPrescan(boolean prescan) {
+    this.prescan = prescan;
+    return this;
+  }
+
+  /**
+   * Sets the number of threads used to parse report files. Each thread uses its own parser
+   * instance.
+   *
+   * @param parserThreads number of parser threads, values below {@code 2} parse on the calling
+   *     thread
+   * @return this parser
+   */
+  public ExtendedSurefireReportParser setParserThreads(int parserThreads) {
+    this.parserThreads = parserThreads;
+    return this;
+  }
+
+  /**
+   * Only keeps stack traces and system output of flaky test cases, see {@link
+   * TestSuiteXMLParser#setCaptureOutputOfFlakyTestsOnly(boolean)}.
+   *
+   * @param captureOutputOfFlakyTestsOnly {@code true} to only keep the output of flaky tests
+   * @return this parser
+   */
+  public ExtendedSurefireReportParser setCaptureOutputOfFlakyTestsOnly(
+      boolean captureOutputOfFlakyTestsOnly) {
+    this.captureOutputOfFlakyTestsOnly = captureOutputOfFlakyTestsOnly;
+    return this;
+  }
+
+  /**
+   * Locates stack traces and system output of flaky test cases in the report files instead of
+   * reading them, see {@link TestSuiteXMLParser#setPassthrough(boolean)}. The report files must not
+   * change until the flaky tests are written.
+   *
+   * @param passthrough {@code true} to pass the content of flaky tests through
+   * @return this parser
+   */
+  public ExtendedSurefireReportParser setPassthrough(boolean passthrough) {
+    this.passthrough = passthrough;
+    return this;
+  }
+
+  /**
+   * @param parserEngine engine used to parse the report files
+   * @return this parser
+   */
+  public ExtendedSurefireReportParser setParserEngine(ParserEngine parserEngine) {
+    this.parserEngine = parserEngine;
+    return this;
+  }
+
+  /**
+   * @param inputBufferSize size of the buffer the report files are read through, see {@link
+   *     TestSuiteXMLParser#setInputBufferSize(int)}
+   * @return this parser
+   */
+  public ExtendedSurefireReportParser setInputBufferSize(int inputBufferSize) {
+    this.inputBufferSize = inputBufferSize;
+    return this;
+  }
+
+  /**
+   * Enables the incremental mode. Report files that are unchanged since they were last processed
+   * are not parsed again; instead {@link ParsedReportHandler#handleUnchanged(File, int)} is called
+   * with their cached outcome. The cache is updated, but not saved, by this parser.
+   *
+   * @param fingerprintCache cache of previously processed report files, or {@code null}
+   * @return this parser
+   */
+  public ExtendedSurefireReportParser setFingerprintCache(ReportFingerprintCache fingerprintCache) {
+    this.fingerprintCache = fingerprintCache;
+    return this;
+  }
+
+  /**
+   * @param excludedReportFiles files that match the include pattern, but are not parsed, e.g.
+   *     reports generated by this plugin
+   * @return this parser
+   */
+  public ExtendedSurefireReportParser setExcludedReportFiles(Set<File> excludedReportFiles) {
+    this.excludedReportFiles = excludedReportFiles;
+    return this;
+  }
+
+  /**
+   * @param metrics metrics to record the scan, prescan and parse phases in
+   * @return this parser
+   */
+  public ExtendedSurefireReportParser setMetrics(ExtractionMetrics metrics) {
+    this.metrics = metrics;
+    return this;
+  }
+
   public Map<File, List<ExtendedReportTestSuite>> parseXMLReportFiles() throws ParsingException {
-    final Collection<File> xmlReportFiles = new ArrayList<>();
+    final Map<File, List<ExtendedReportTestSuite>> result = new HashMap<>();
+
+    parseXMLReportFiles(result::put);
+
+    return result;
+  }
+
+  /**
+   * Parses the report files and passes the test suites of each file to the handler. The handler is
+   * always called on the calling thread and in the order of the report file paths, regardless of
+   * the number of parser threads. With more than one parser thread, at most twice as many parsed
+   * files as there are threads are held in memory at the same time.
+   *
+   * @param handler handler for the parsed report files
+   * @throws ParsingException if the parser cannot be set up or a report file cannot be read
+   */
+  public void parseXMLReportFiles(ParsedReportHandler handler) throws ParsingException {
+    final long scanStart = ExtractionMetrics.startTimer();
+    final List<File> xmlReportFiles = new ArrayList<>();
+    int excludedFiles = 0;
     for (File reportsDirectory : reportsDirectories) {
       if (reportsDirectory.exists()) {
+        final ScanEvent scanEvent = new ScanEvent();
+        scanEvent.begin();
+        int reportFilesInDirectory = 0;
+        int excludedFilesInDirectory = 0;
         for (String xmlReportFile : getIncludedFiles(reportsDirectory, INCLUDES, EXCLUDES)) {
-          xmlReportFiles.add(new File(reportsDirectory, xmlReportFile));
+          final File file = new File(reportsDirectory, xmlReportFile);
+          if (excludedReportFiles.contains(file)) {
+            excludedFilesInDirectory++;
+          } else {
+            xmlReportFiles.add(file);
+            reportFilesInDirectory++;
+          }
+        }
+        excludedFiles += excludedFilesInDirectory;
+        if (scanEvent.shouldCommit()) {
+          scanEvent.setDirectory(reportsDirectory.getAbsolutePath());
+          scanEvent.setReportFiles(reportFilesInDirectory);
+          scanEvent.setExcludedFiles(excludedFilesInDirectory);
+          scanEvent.commit();
         }
       }
     }
+    Collections.sort(xmlReportFiles);
+    metrics.recordTime(Phase.SCAN, scanStart);
+    metrics.recordFiles(Phase.SCAN, xmlReportFiles.size() + excludedFiles, 0);
+    metrics.recordSkippedFiles(Phase.SCAN, excludedFiles);
 
-    final Map<File, List<ExtendedReportTestSuite>> result = new HashMap<>();
+    final Queue<ReportFileWorker> workers = new ConcurrentLinkedQueue<>();
+    final OutcomeCounts counts = new OutcomeCounts();
+    if (parserThreads > 1 && xmlReportFiles.size() > 1) {
+      parseConcurrently(xmlReportFiles, handler, workers, counts);
+    } else {
+      final ReportFileWorker worker = new ReportFileWorker(workers);
+      for (File xmlReportFile : xmlReportFiles) {
+        handleOutcome(worker.parse(xmlReportFile), handler, counts);
+      }
+    }
 
-    final ExtendedTestSuiteXMLParser parser = new ExtendedTestSuiteXMLParser(logger);
-    for (File xmlReportFile : xmlReportFiles) {
-      try {
-        result.put(xmlReportFile, parser.parse(xmlReportFile.getAbsolutePath()));
-      } catch (ParserConfigurationException e) {
-        throw new ParsingException("Error setting up parser for JUnit XML report", e);
-      } catch (SAXException e) {
-        logger.info(
-            "Skipping "
-                + xmlReportFile.getName()
-                + " because of parsing exception:"
-                + e.getLocalizedMessage());
-      } catch (IOException e) {
-        throw new ParsingException("Error reading JUnit XML report " + xmlReportFile, e);
+    if (prescan) {
+      logger.debug(
+          "Prescan skipped "
+              + counts.skippedByPrescan
+              + " of "
+              + xmlReportFiles.size()
+              + " report files");
+    }
+    if (fingerprintCache != null) {
+      logger.debug(
+          "Reused cached outcome of "
+              + counts.unchanged
+              + " of "
+              + xmlReportFiles.size()
+              + " report files");
+    }
+    logParserReuse(workers);
+  }
+
+  private void parseConcurrently(
+      List<File> xmlReportFiles,
+      ParsedReportHandler handler,
+      Queue<ReportFileWorker> allWorkers,
+      OutcomeCounts counts)
+      throws ParsingException {
+    final ThreadLocal<ReportFileWorker> workers =
+        ThreadLocal.withInitial(() -> new ReportFileWorker(allWorkers));
+    final ExecutorService executor =
+        Executors.newFixedThreadPool(parserThreads, new ParserThreadFactory());
+    final int maxPendingFiles = parserThreads * 2;
+
+    try {
+      final Deque<Future<ParseOutcome>> pendingFiles = new ArrayDeque<>();
+      final Iterator<File> remainingFiles = xmlReportFiles.iterator();
+
+      while (remainingFiles.hasNext() || !pendingFiles.isEmpty()) {
+        while (remainingFiles.hasNext() && pendingFiles.size() < maxPendingFiles) {
+          final File xmlReportFile = remainingFiles.next();
+          pendingFiles.add(executor.submit(() -> workers.get().parse(xmlReportFile)));
+        }
+        handleOutcome(awaitOutcome(pendingFiles.poll()), handler, counts);
       }
+    } finally {
+      executor.shutdownNow();
     }
+  }
 
-    return result;
+  private static ParseOutcome awaitOutcome(Future<ParseOutcome> pendingFile)
+      throws ParsingException {
+    try {
+      return pendingFile.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new ParsingException("Interrupted while parsing JUnit XML reports", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof ParsingException) {
+        throw (ParsingException) e.getCause();
+      }
+      throw new ParsingException("Error parsing JUnit XML reports", e.getCause());
+    }
+  }
+
+  private void logParserReuse(Queue<ReportFileWorker> workers) {
+    if (!logger.isDebugEnabled()) {
+      return;
+    }
+
+    int createdParsers = 0;
+    int reusedParsers = 0;
+    long parserSetupNanos = 0;
+    for (ReportFileWorker worker : workers) {
+      if (worker.parser instanceof ExtendedTestSuiteXMLParser) {
+        final ExtendedTestSuiteXMLParser saxParser = (ExtendedTestSuiteXMLParser) worker.parser;
+        createdParsers += saxParser.getCreatedParsers();
+        reusedParsers += saxParser.getReusedParsers();
+        parserSetupNanos += saxParser.getParserSetupNanos();
+      }
+    }
+
+    if (createdParsers > 0) {
+      final long averageSetupNanos = parserSetupNanos / createdParsers;
+      logger.debug(
+          "Created "
+              + createdParsers
+              + " SAX parsers (average setup "
+              + TimeUnit.NANOSECONDS.toMicros(averageSetupNanos)
+              + " µs) and reused them for "
+              + reusedParsers
+              + " files, saving about "
+              + TimeUnit.NANOSECONDS.toMillis(averageSetupNanos * reusedParsers)
+              + " ms of parser setup");
+    }
+  }
+
+  private void handleOutcome(
+      ParseOutcome outcome, ParsedReportHandler handler, OutcomeCounts counts) {
+    if (outcome.testSuites != null) {
+      updateFingerprintCache(outcome, countFlakes(outcome.testSuites));
+      handler.handle(outcome.reportFile, outcome.testSuites);
+    } else if (outcome.parsingError != null) {
+      metrics.recordSkippedFiles(Phase.PARSE, 1);
+      logger.info(
+          "Skipping "
+              + outcome.reportFile.getName()
+              + " because of parsing exception:"
+              + outcome.parsingError.getLocalizedMessage());
+    } else if (outcome.cachedNumberOfFlakes != null) {
+      counts.unchanged++;
+      metrics.recordSkippedFiles(Phase.PRESCAN, 1);
+      handler.handleUnchanged(outcome.reportFile, outcome.cachedNumberOfFlakes);
+    } else {
+      counts.skippedByPrescan++;
+      metrics.recordSkippedFiles(Phase.PRESCAN, 1);
+      updateFingerprintCache(outcome, 0);
+    }
+  }
+
+  private void updateFingerprintCache(ParseOutcome outcome, int numberOfFlakes) {
+    if (fingerprintCache != null) {
+      fingerprintCache.update(outcome.reportFile, outcome.fingerprint, numberOfFlakes);
+    }
+  }
+
+  private static int countFlakes(List<ExtendedReportTestSuite> testSuites) {
+    int numberOfFlakes = 0;
+    for (ExtendedReportTestSuite testSuite : testSuites) {
+      numberOfFlakes += testSuite.getNumberOfFlakes();
+    }
+    return numberOfFlakes;
   }
 
   private static String[] getIncludedFiles(File directory, String includes, String excludes) {
@@ -81,4 +376,153 @@ public class ExtendedSurefireReportParser {
 
     return scanner.getIncludedFiles();
   }
+
+  /** Parser state of a single thread; parser instances cannot be shared between threads. */
+  private final class ReportFileWorker {
+
+    private final TestSuiteXMLParser parser =
+        parserEngine
+            .createParser(logger)
+            .setCaptureOutputOfFlakyTestsOnly(captureOutputOfFlakyTestsOnly)
+            .setPassthrough(passthrough)
+            .setInputBufferSize(inputBufferSize);
+
+    private final FlakyReportPrescanner prescanner = prescan ? new FlakyReportPrescanner() : null;
+
+    private ReportFileWorker(Queue<ReportFileWorker> workers) {
+      workers.add(this);
+    }
+
+    private ParseOutcome parse(File xmlReportFile) throws ParsingException {
+      try {
+        Fingerprint fingerprint = null;
+        if (fingerprintCache != null || prescanner != null) {
+          final long prescanStart = ExtractionMetrics.startTimer();
+          long bytesRead = 0;
+          try {
+            if (fingerprintCache != null) {
+              fingerprint = Fingerprint.of(xmlReportFile);
+              bytesRead += fingerprint.getSize();
+              final Integer cachedNumberOfFlakes =
+                  fingerprintCache.lookup(xmlReportFile, fingerprint);
+              if (cachedNumberOfFlakes != null) {
+                return ParseOutcome.unchanged(xmlReportFile, cachedNumberOfFlakes);
+              }
+            }
+            if (prescanner != null) {
+              final long prescannerBytesRead = prescanner.getBytesRead();
+              final boolean mayContainFlakyTests = prescanner.mayContainFlakyTests(xmlReportFile);
+              bytesRead += prescanner.getBytesRead() - prescannerBytesRead;
+              if (!mayContainFlakyTests) {
+                return ParseOutcome.skipped(xmlReportFile, fingerprint);
+              }
+            }
+          } finally {
+            metrics.recordTime(Phase.PRESCAN, prescanStart);
+            metrics.recordFiles(Phase.PRESCAN, 1, bytesRead);
+          }
+        }
+
+        final long parseStart = ExtractionMetrics.startTimer();
+        final ParseEvent parseEvent = new ParseEvent();
+        parseEvent.begin();
+        try {
+          final List<ExtendedReportTestSuite> testSuites =
+              parser.parse(xmlReportFile.getAbsolutePath());
+          int testCases = 0;
+          for (ExtendedReportTestSuite testSuite : testSuites) {
+            testCases += testSuite.getNumberOfTests();
+          }
+          final int flakyTestCases = countFlakes(testSuites);
+          metrics.recordTestCases(Phase.PARSE, testCases, flakyTestCases);
+          if (parseEvent.shouldCommit()) {
+            parseEvent.setReportFile(xmlReportFile.getAbsolutePath());
+            parseEvent.setFileSize(xmlReportFile.length());
+            parseEvent.setTestCases(testCases);
+            parseEvent.setFlakyTestCases(flakyTestCases);
+            parseEvent.commit();
+          }
+          return ParseOutcome.parsed(xmlReportFile, fingerprint, testSuites);
+        } finally {
+          metrics.recordTime(Phase.PARSE, parseStart);
+          metrics.recordFiles(Phase.PARSE, 1, xmlReportFile.length());
+        }
+      } catch (ParserConfigurationException e) {
+        throw new ParsingException("Error setting up parser for JUnit XML report", e);
+      } catch (SAXException e) {
+        return ParseOutcome.invalid(xmlReportFile, e);
+      } catch (IOException e) {
+        throw new ParsingException("Error reading JUnit XML report " + xmlReportFile, e);
+      }
+    }
+  }
+
+  /**
+   * Result of a single report file: either the parsed test suites, the reason why the file could
+   * not be parsed, the cached number of flaky tests of an unchanged file, or none of these if the
+   * file was skipped by the prescan.
+   */
+  private static final class ParseOutcome {
+
+    private final File reportFile;
+
+    private final Fingerprint fingerprint;
+
+    private final List<ExtendedReportTestSuite> testSuites;
+
+    private final SAXException parsingError;
+
+    private final Integer cachedNumberOfFlakes;
+
+    private ParseOutcome(
+        File reportFile,
+        Fingerprint fingerprint,
+        List<ExtendedReportTestSuite> testSuites,
+        SAXException parsingError,
+        Integer cachedNumberOfFlakes) {
+      this.reportFile = reportFile;
+      this.fingerprint = fingerprint;
+      this.testSuites = testSuites;
+      this.parsingError = parsingError;
+      this.cachedNumberOfFlakes = cachedNumberOfFlakes;
+    }
+
+    static ParseOutcome parsed(
+        File reportFile, Fingerprint fingerprint, List<ExtendedReportTestSuite> testSuites) {
+      return new ParseOutcome(reportFile, fingerprint, testSuites, null, null);
+    }
+
+    static ParseOutcome invalid(File reportFile, SAXException parsingError) {
+      return new ParseOutcome(reportFile, null, null, parsingError, null);
+    }
+
+    static ParseOutcome skipped(File reportFile, Fingerprint fingerprint) {
+      return new ParseOutcome(reportFile, fingerprint, null, null, null);
+    }
+
+    static ParseOutcome unchanged(File reportFile, int cachedNumberOfFlakes) {
+      return new ParseOutcome(reportFile, null, null, null, cachedNumberOfFlakes);
+    }
+  }
+
+  /** Number of report files per kind of outcome, for logging. */
+  private static final class OutcomeCounts {
+
+    private int skippedByPrescan;
+
+    private int unchanged;
+  }
+
+  private static final class ParserThreadFactory implements ThreadFactory {
+
+    private final AtomicInteger threadCount = new AtomicInteger();
+
+    @Override
+    public Thread newThread(Runnable runnable) {
+      final Thread thread =
+          new Thread(runnable, "flaky-test-extractor-parser-" + threadCount.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    }
+  }
 }
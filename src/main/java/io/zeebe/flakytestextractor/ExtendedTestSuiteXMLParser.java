@@ -1,296 +1,207 @@
 package io.zeebe.flakytestextractor;
 
-import static java.nio.charset.StandardCharsets.UTF_8;
-import static java.util.Locale.ENGLISH;
-
+import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.text.NumberFormat;
-import java.text.ParseException;
-import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.parsers.SAXParser;
-import javax.xml.parsers.SAXParserFactory;
 import org.apache.maven.plugin.logging.Log;
-import org.apache.maven.surefire.shared.utils.StringUtils;
 import org.xml.sax.Attributes;
 import org.xml.sax.InputSource;
+import org.xml.sax.Locator;
 import org.xml.sax.SAXException;
+import org.xml.sax.ext.Locator2;
 import org.xml.sax.helpers.DefaultHandler;
 
 /**
  * Based on {@code org.apache.maven.plugins.surefire.report.TestSuiteXmlParser} (licensed under
  * http://www.apache.org/licenses/LICENSE-2.0).
  *
- * <p>This class uses the extended data objects to capture more information on flaky tests.
+ * <p>This class uses the extended data objects to capture more information on flaky tests. It is
+ * the SAX engine of {@link TestSuiteXMLParser}.
  */
-public class ExtendedTestSuiteXMLParser extends DefaultHandler {
-  private final NumberFormat numberFormat = NumberFormat.getInstance(ENGLISH);
+public class ExtendedTestSuiteXMLParser extends DefaultHandler implements TestSuiteXMLParser {
+  private final SurefireTimeParser timeParser = new SurefireTimeParser();
 
   private final Log logger;
 
-  private ExtendedReportTestSuite defaultSuite;
+  private boolean captureOutputOfFlakyTestsOnly = false;
+
+  private boolean passthrough = false;
 
-  private ExtendedReportTestSuite currentSuite;
+  private int inputBufferSize = DEFAULT_INPUT_BUFFER_SIZE;
 
-  private Map<String, Integer> classesToSuitesIndex;
+  private TestSuiteModelBuilder modelBuilder;
 
-  private List<ExtendedReportTestSuite> suites;
+  private boolean valid;
 
-  private StringBuilder currentElement;
+  private Locator locator;
 
-  private ExtendedReportTestCase testCase;
+  /** Reused for all files parsed by this instance; reset after each file */
+  private SAXParser saxParser;
 
-  private boolean valid;
+  private int createdParsers;
+
+  private int reusedParsers;
+
+  private long parserSetupNanos;
+
+  private long retainedCharacters;
 
   public ExtendedTestSuiteXMLParser(Log logger) {
     this.logger = logger;
   }
 
+  /** {@inheritDoc} */
+  @Override
+  public ExtendedTestSuiteXMLParser setCaptureOutputOfFlakyTestsOnly(
+      boolean captureOutputOfFlakyTestsOnly) {
+    this.captureOutputOfFlakyTestsOnly = captureOutputOfFlakyTestsOnly;
+    return this;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public ExtendedTestSuiteXMLParser setPassthrough(boolean passthrough) {
+    this.passthrough = passthrough;
+    return this;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public ExtendedTestSuiteXMLParser setInputBufferSize(int inputBufferSize) {
+    this.inputBufferSize = inputBufferSize;
+    return this;
+  }
+
+  /** {@inheritDoc} */
+  @Override
   public List<ExtendedReportTestSuite> parse(String xmlPath)
       throws ParserConfigurationException, SAXException, IOException {
     File f = new File(xmlPath);
-    try (InputStreamReader stream = new InputStreamReader(new FileInputStream(f), UTF_8)) {
-      return parse(stream);
+    if (passthrough) {
+      final TestSuiteModelBuilder passthroughModelBuilder = newModelBuilder(true);
+      final List<ExtendedReportTestSuite> testSuites = parse(f, passthroughModelBuilder);
+      if (ReportContentLocator.locate(
+          f,
+          passthroughModelBuilder.getSourceEncoding(),
+          passthroughModelBuilder.getFlakyTestCases())) {
+        return testSuites;
+      }
+      logger.debug("Cannot pass through the content of flaky tests in " + f + ", parsing it again");
     }
+    return parse(f, newModelBuilder(false));
   }
 
   public List<ExtendedReportTestSuite> parse(InputStreamReader stream)
       throws ParserConfigurationException, SAXException, IOException {
-    SAXParserFactory factory = SAXParserFactory.newInstance();
+    return parse(new InputSource(stream), newModelBuilder(false));
+  }
+
+  private List<ExtendedReportTestSuite> parse(File f, TestSuiteModelBuilder modelBuilder)
+      throws ParserConfigurationException, SAXException, IOException {
+    // the parser decodes the bytes itself, in the encoding of the XML declaration
+    try (InputStream stream = new BufferedInputStream(new FileInputStream(f), inputBufferSize)) {
+      return parse(new InputSource(stream), modelBuilder);
+    }
+  }
 
-    SAXParser saxParser = factory.newSAXParser();
+  private TestSuiteModelBuilder newModelBuilder(boolean passthrough) {
+    return new TestSuiteModelBuilder(
+        logger, timeParser, captureOutputOfFlakyTestsOnly, passthrough);
+  }
 
-    valid = true;
+  private List<ExtendedReportTestSuite> parse(
+      InputSource inputSource, TestSuiteModelBuilder modelBuilder)
+      throws ParserConfigurationException, SAXException, IOException {
+    if (saxParser == null) {
+      final long setupStart = System.nanoTime();
+      saxParser = XmlParserFactories.newSAXParser();
+      parserSetupNanos += System.nanoTime() - setupStart;
+      createdParsers++;
+    } else {
+      reusedParsers++;
+    }
 
-    classesToSuitesIndex = new HashMap<>();
-    suites = new ArrayList<>();
+    this.modelBuilder = modelBuilder;
 
-    saxParser.parse(new InputSource(stream), this);
+    try {
+      saxParser.parse(inputSource, this);
 
-    if (currentSuite
-        != defaultSuite) { // omit the defaultSuite if it's empty and there are alternatives
-      if (defaultSuite.getNumberOfTests() == 0) {
-        suites.remove(classesToSuitesIndex.get(defaultSuite.getFullClassName()).intValue());
-      }
+      return modelBuilder.getTestSuites();
+    } finally {
+      valid = modelBuilder.isValid();
+      retainedCharacters += modelBuilder.getRetainedCharacters();
+      // drop all references to the parsed report so that it can be garbage collected
+      modelBuilder = null;
+      locator = null;
+      resetSAXParser();
+    }
+  }
+
+  private void resetSAXParser() {
+    try {
+      saxParser.reset();
+    } catch (UnsupportedOperationException e) {
+      // parsers that cannot be reset are created anew for the next file
+      saxParser = null;
     }
+  }
+
+  /** @return number of SAX parsers this instance has created */
+  public int getCreatedParsers() {
+    return createdParsers;
+  }
+
+  /** @return number of files for which an existing SAX parser was reused */
+  public int getReusedParsers() {
+    return reusedParsers;
+  }
+
+  /** @return total time spent creating SAX parsers, in nanoseconds */
+  public long getParserSetupNanos() {
+    return parserSetupNanos;
+  }
+
+  /** @return number of characters of element text this instance has kept in memory while parsing */
+  public long getRetainedCharacters() {
+    return retainedCharacters;
+  }
 
-    return suites;
+  /** {@inheritDoc} */
+  @Override
+  public void setDocumentLocator(Locator locator) {
+    this.locator = locator;
   }
 
   /** {@inheritDoc} */
   @Override
   public void startElement(String uri, String localName, String qName, Attributes attributes)
       throws SAXException {
-    if (valid) {
-      try {
-        switch (qName) {
-          case "testsuite":
-            defaultSuite = new ExtendedReportTestSuite();
-            currentSuite = defaultSuite;
-
-            try {
-              Number time = numberFormat.parse(attributes.getValue("time"));
-
-              defaultSuite.setTimeElapsed(time.floatValue());
-            } catch (NullPointerException e) {
-              logger.error("WARNING: no time attribute found on testsuite element");
-            }
-
-            final String name = attributes.getValue("name");
-            final String group = attributes.getValue("group");
-            defaultSuite.setFullClassName(
-                StringUtils.isBlank(group)
-                    ? /* name is full class name */ name
-                    : /* group is package name */ group + "." + name);
-
-            suites.add(defaultSuite);
-            classesToSuitesIndex.put(defaultSuite.getFullClassName(), suites.size() - 1);
-            break;
-          case "testcase":
-            currentElement = new StringBuilder();
-
-            testCase = new ExtendedReportTestCase().setName(attributes.getValue("name"));
-
-            String fullClassName = attributes.getValue("classname");
-
-            // if the testcase declares its own classname, it may need to belong to its own
-            // suite
-            if (fullClassName != null) {
-              Integer currentSuiteIndex = classesToSuitesIndex.get(fullClassName);
-              if (currentSuiteIndex == null) {
-                currentSuite = new ExtendedReportTestSuite().setFullClassName(fullClassName);
-                suites.add(currentSuite);
-                classesToSuitesIndex.put(fullClassName, suites.size() - 1);
-              } else {
-                currentSuite = suites.get(currentSuiteIndex);
-              }
-            }
-
-            String timeAsString = attributes.getValue("time");
-            Number time = StringUtils.isBlank(timeAsString) ? 0 : numberFormat.parse(timeAsString);
-
-            testCase
-                .setFullClassName(currentSuite.getFullClassName())
-                .setClassName(currentSuite.getName())
-                .setFullName(currentSuite.getFullClassName() + "." + testCase.getName())
-                .setTime(time.floatValue());
-
-            if (currentSuite != defaultSuite) {
-              currentSuite.setTimeElapsed(testCase.getTime() + currentSuite.getTimeElapsed());
-            }
-            break;
-          case "failure":
-            testCase
-                .setFailureMessage(attributes.getValue("message"))
-                .setFailureType(attributes.getValue("type"));
-            currentSuite.incrementNumberOfFailures();
-            break;
-          case "error":
-            testCase
-                .setFailureMessage(attributes.getValue("message"))
-                .setFailureType(attributes.getValue("type"));
-            currentSuite.incrementNumberOfErrors();
-            break;
-          case "skipped":
-            String message = attributes.getValue("message");
-            testCase.setSkipped(message != null ? message : "skipped");
-            currentSuite.incrementNumberOfSkipped();
-            break;
-          case "flakyFailure":
-          case "flakyError":
-            testCase.setFlake();
-            testCase
-                .setFailureMessage(attributes.getValue("message"))
-                .setFailureType(attributes.getValue("type"));
-            currentSuite.incrementNumberOfFlakes();
-            break;
-          case "failsafe-summary":
-            valid = false;
-            break;
-          case "system-out":
-          case "system-err":
-          case "stackTrace":
-            {
-              currentElement = new StringBuilder();
-              break;
-            }
-          default:
-            break;
-        }
-      } catch (ParseException e) {
-        throw new SAXException(e.getMessage(), e);
-      }
+    // the encoding of the XML declaration is known once the root element starts
+    if (modelBuilder.getSourceEncoding() == null && locator instanceof Locator2) {
+      modelBuilder.setSourceEncoding(((Locator2) locator).getEncoding());
     }
+    modelBuilder.startElement(qName, attributes::getValue);
   }
 
   /** {@inheritDoc} */
   @Override
   public void endElement(String uri, String localName, String qName) throws SAXException {
-    switch (qName) {
-      case "testcase":
-        currentSuite.getTestCases().add(testCase);
-        break;
-      case "stackTrace":
-      case "failure":
-      case "error":
-        testCase
-            .setFailureDetail(currentElement.toString())
-            .setFailureErrorLine(parseErrorLine(currentElement, testCase.getFullClassName()));
-        break;
-      case "system-out":
-        testCase.setSystemOut(currentElement.toString());
-        break;
-      case "system-err":
-        testCase.setSystemError(currentElement.toString());
-        break;
-      case "time":
-        try {
-          defaultSuite.setTimeElapsed(numberFormat.parse(currentElement.toString()).floatValue());
-        } catch (ParseException e) {
-          throw new SAXException(e.getMessage(), e);
-        }
-        break;
-      default:
-        break;
-    }
-    // TODO extract real skipped reasons
+    modelBuilder.endElement(qName);
   }
 
   /** {@inheritDoc} */
   @Override
   public void characters(char[] ch, int start, int length) {
-    assert start >= 0;
-    assert length >= 0;
-    if (valid && isNotBlank(start, length, ch)) {
-      currentElement.append(ch, start, length);
-    }
+    modelBuilder.characters(ch, start, length);
   }
 
   public boolean isValid() {
     return valid;
   }
-
-  static boolean isNotBlank(int from, int len, char... s) {
-    assert from >= 0;
-    assert len >= 0;
-    if (s != null) {
-      for (int i = 0; i < len; i++) {
-        char c = s[from++];
-        if (c != ' ' && c != '\t' && c != '\n' && c != '\r' && c != '\f') {
-          return true;
-        }
-      }
-    }
-    return false;
-  }
-
-  static boolean isNumeric(StringBuilder s, final int from, final int to) {
-    assert from >= 0;
-    assert from <= to;
-    for (int i = from; i != to; ) {
-      if (!Character.isDigit(s.charAt(i++))) {
-        return false;
-      }
-    }
-    return from != to;
-  }
-
-  static String parseErrorLine(StringBuilder currentElement, String fullClassName) {
-    final String[] linePatterns = {"at " + fullClassName + '.', "at " + fullClassName + '$'};
-    int[] indexes = lastIndexOf(currentElement, linePatterns);
-    int patternStartsAt = indexes[0];
-    if (patternStartsAt != -1) {
-      int searchFrom = patternStartsAt + (linePatterns[indexes[1]]).length();
-      searchFrom = 1 + currentElement.indexOf(":", searchFrom);
-      int searchTo = currentElement.indexOf(")", searchFrom);
-      return isNumeric(currentElement, searchFrom, searchTo)
-          ? currentElement.substring(searchFrom, searchTo)
-          : "";
-    }
-    return "";
-  }
-
-  static int[] lastIndexOf(StringBuilder source, String... linePatterns) {
-    int end = source.indexOf("Caused by:");
-    if (end == -1) {
-      end = source.length();
-    }
-    int startsAt = -1;
-    int pattern = -1;
-    for (int i = 0; i < linePatterns.length; i++) {
-      String linePattern = linePatterns[i];
-      int currentStartsAt = source.lastIndexOf(linePattern, end);
-      if (currentStartsAt > startsAt) {
-        startsAt = currentStartsAt;
-        pattern = i;
-      }
-    }
-    return new int[] {startsAt, pattern};
-  }
 }
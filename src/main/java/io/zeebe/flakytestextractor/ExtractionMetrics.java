@@ -0,0 +1,219 @@
+package io.zeebe.flakytestextractor;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Time spent and amount of data handled in each phase of an extraction. Phases that run on the
+ * parser threads, i.e. prescan and parse, record the time summed over all threads, so with more
+ * than one parser thread their time can exceed the total wall time.
+ *
+ * <p>Instances are thread-safe.
+ */
+public class ExtractionMetrics {
+
+  /** Phases of an extraction, in the order in which a report file passes them */
+  public enum Phase {
+    /** Searching the report directories for report files; skipped files are generated reports */
+    SCAN,
+    /**
+     * Deciding whether a report file needs to be parsed, by its fingerprint in the incremental mode
+     * and by the prescan; skipped files are unchanged or do not contain flaky tests
+     */
+    PRESCAN,
+    /** Parsing report files; skipped files are invalid */
+    PARSE,
+    /** Reducing the parsed test suites to the flaky tests */
+    TRANSFORM,
+    /** Writing the reports with the flaky tests */
+    WRITE
+  }
+
+  private final Map<Phase, Counters> counters = new EnumMap<>(Phase.class);
+
+  private final long startNanos = System.nanoTime();
+
+  private volatile long totalNanos = -1;
+
+  public ExtractionMetrics() {
+    for (Phase phase : Phase.values()) {
+      counters.put(phase, new Counters());
+    }
+  }
+
+  /** @return the current time, to be passed to {@link #recordTime(Phase, long)} */
+  public static long startTimer() {
+    return System.nanoTime();
+  }
+
+  /**
+   * @param phase phase that took the time
+   * @param startNanos time returned by {@link #startTimer()} when the phase started
+   */
+  public void recordTime(Phase phase, long startNanos) {
+    counters.get(phase).nanos.add(System.nanoTime() - startNanos);
+  }
+
+  /**
+   * @param phase phase that handled the files
+   * @param files number of files handled
+   * @param bytesRead number of bytes read from these files
+   */
+  public void recordFiles(Phase phase, int files, long bytesRead) {
+    final Counters phaseCounters = counters.get(phase);
+    phaseCounters.files.add(files);
+    phaseCounters.bytesRead.add(bytesRead);
+  }
+
+  /**
+   * @param phase phase that skipped the files
+   * @param files number of files that were not passed on to the next phase
+   */
+  public void recordSkippedFiles(Phase phase, int files) {
+    counters.get(phase).skippedFiles.add(files);
+  }
+
+  /**
+   * @param phase phase that saw the test cases
+   * @param testCases number of test cases
+   * @param flakes number of flaky test cases among them
+   */
+  public void recordTestCases(Phase phase, int testCases, int flakes) {
+    final Counters phaseCounters = counters.get(phase);
+    phaseCounters.testCases.add(testCases);
+    phaseCounters.flakes.add(flakes);
+  }
+
+  /**
+   * @param phase phase that wrote the bytes
+   * @param bytesWritten number of bytes written
+   */
+  public void recordBytesWritten(Phase phase, long bytesWritten) {
+    counters.get(phase).bytesWritten.add(bytesWritten);
+  }
+
+  /** Ends the measurement of the total wall time. */
+  public void finish() {
+    totalNanos = System.nanoTime() - startNanos;
+  }
+
+  /** @return the summary as a table, one line per phase */
+  public List<String> toTable() {
+    final String format = "%-9s %10s %8s %14s %8s %10s %7s %14s";
+    final List<String> lines = new ArrayList<>();
+    lines.add(
+        String.format(
+            Locale.ENGLISH,
+            format,
+            "phase",
+            "time [ms]",
+            "files",
+            "bytes read",
+            "skipped",
+            "test cases",
+            "flakes",
+            "bytes written"));
+    for (Phase phase : Phase.values()) {
+      final Counters phaseCounters = counters.get(phase);
+      lines.add(
+          String.format(
+              Locale.ENGLISH,
+              format,
+              phase.name().toLowerCase(Locale.ENGLISH),
+              toMillis(phaseCounters.nanos.sum()),
+              phaseCounters.files.sum(),
+              phaseCounters.bytesRead.sum(),
+              phaseCounters.skippedFiles.sum(),
+              phaseCounters.testCases.sum(),
+              phaseCounters.flakes.sum(),
+              phaseCounters.bytesWritten.sum()));
+    }
+    lines.add(String.format(Locale.ENGLISH, "%-9s %10s", "total", toMillis(getTotalNanos())));
+    return lines;
+  }
+
+  /**
+   * Writes the summary as a JSON document.
+   *
+   * @param metricsFile file to write to; missing parent directories are created
+   * @param reportDir report directory the metrics belong to
+   * @throws IOException if the file cannot be written
+   */
+  public void writeJson(File metricsFile, File reportDir) throws IOException {
+    final StringBuilder json = new StringBuilder();
+    json.append("{\n");
+    json.append("  \"reportDir\": \"")
+        .append(escapeJson(reportDir.getAbsolutePath()))
+        .append("\",\n");
+    json.append("  \"timestamp\": ").append(System.currentTimeMillis()).append(",\n");
+    json.append("  \"totalNanos\": ").append(getTotalNanos()).append(",\n");
+    json.append("  \"phases\": {\n");
+    final Phase[] phases = Phase.values();
+    for (int i = 0; i < phases.length; i++) {
+      final Counters phaseCounters = counters.get(phases[i]);
+      json.append("    \"").append(phases[i].name().toLowerCase(Locale.ENGLISH)).append("\": {");
+      json.append("\"nanos\": ").append(phaseCounters.nanos.sum());
+      json.append(", \"files\": ").append(phaseCounters.files.sum());
+      json.append(", \"bytesRead\": ").append(phaseCounters.bytesRead.sum());
+      json.append(", \"skippedFiles\": ").append(phaseCounters.skippedFiles.sum());
+      json.append(", \"testCases\": ").append(phaseCounters.testCases.sum());
+      json.append(", \"flakes\": ").append(phaseCounters.flakes.sum());
+      json.append(", \"bytesWritten\": ").append(phaseCounters.bytesWritten.sum());
+      json.append(i < phases.length - 1 ? "},\n" : "}\n");
+    }
+    json.append("  }\n");
+    json.append("}\n");
+
+    Files.createDirectories(metricsFile.getAbsoluteFile().getParentFile().toPath());
+    Files.write(metricsFile.toPath(), json.toString().getBytes(UTF_8));
+  }
+
+  private long getTotalNanos() {
+    return totalNanos >= 0 ? totalNanos : System.nanoTime() - startNanos;
+  }
+
+  private static long toMillis(long nanos) {
+    return TimeUnit.NANOSECONDS.toMillis(nanos);
+  }
+
+  static String escapeJson(String value) {
+    final StringBuilder escaped = new StringBuilder(value.length());
+    for (int i = 0; i < value.length(); i++) {
+      final char c = value.charAt(i);
+      if (c == '"' || c == '\\') {
+        escaped.append('\\').append(c);
+      } else if (c < 0x20) {
+        escaped.append(String.format(Locale.ENGLISH, "\\u%04x", (int) c));
+      } else {
+        escaped.append(c);
+      }
+    }
+    return escaped.toString();
+  }
+
+  private static final class Counters {
+    private final LongAdder nanos = new LongAdder();
+
+    private final LongAdder files = new LongAdder();
+
+    private final LongAdder bytesRead = new LongAdder();
+
+    private final LongAdder skippedFiles = new LongAdder();
+
+    private final LongAdder testCases = new LongAdder();
+
+    private final LongAdder flakes = new LongAdder();
+
+    private final LongAdder bytesWritten = new LongAdder();
+  }
+}
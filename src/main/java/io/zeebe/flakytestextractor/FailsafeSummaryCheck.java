@@ -0,0 +1,122 @@
+package io.zeebe.flakytestextractor;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Set;
+import javax.xml.parsers.ParserConfigurationException;
+import org.apache.maven.plugin.logging.Log;
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * Decides by the {@code failsafe-summary*.xml} files of a report directory whether the reports can
+ * contain flaky tests at all. Failsafe writes the number of flaky tests of a run into its summary
+ * after it has written the reports, so when all summaries count zero flakes and none of them is
+ * older than a report, the reports need not be parsed.
+ *
+ * <p>Summaries of Failsafe versions that do not count flaky tests, unreadable summaries and report
+ * directories without a summary, e.g. those of Surefire, never allow to skip the reports.
+ */
+public final class FailsafeSummaryCheck {
+
+  static final String SUMMARY_FILE_PREFIX = "failsafe-summary";
+
+  private FailsafeSummaryCheck() {}
+
+  /**
+   * @param reportDir report directory
+   * @param generatedReports report files written by this plugin, which may be newer than the
+   *     summaries
+   * @param logger logger
+   * @return {@code true} if the report directory has at least one up-to-date summary and all
+   *     summaries count zero flaky tests
+   */
+  public static boolean reportsNoFlakyTests(
+      File reportDir, Set<File> generatedReports, Log logger) {
+    final File[] summaries =
+        reportDir.listFiles(
+            file -> file.getName().startsWith(SUMMARY_FILE_PREFIX) && isXmlFile(file));
+    if (summaries == null || summaries.length == 0) {
+      return false;
+    }
+
+    long oldestSummary = Long.MAX_VALUE;
+    for (File summary : summaries) {
+      final Integer flakes = readFlakes(summary, logger);
+      if (flakes == null || flakes != 0) {
+        logger.debug(summary.getName() + " counts " + flakes + " flaky tests");
+        return false;
+      }
+      oldestSummary = Math.min(oldestSummary, summary.lastModified());
+    }
+
+    final File[] reports =
+        reportDir.listFiles(
+            file ->
+                isXmlFile(file)
+                    && !file.getName().startsWith(SUMMARY_FILE_PREFIX)
+                    && !generatedReports.contains(file));
+    for (File report : reports) {
+      if (report.lastModified() > oldestSummary) {
+        logger.debug(report.getName() + " was written after the failsafe summary");
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** @return the number of flaky tests counted by the summary, {@code null} if unknown */
+  private static Integer readFlakes(File summary, Log logger) {
+    final FlakesHandler handler = new FlakesHandler();
+    try {
+      XmlParserFactories.newSAXParser().parse(summary, handler);
+    } catch (ParserConfigurationException | SAXException | IOException e) {
+      logger.warn("Ignoring unreadable failsafe summary " + summary + ": " + e.getMessage());
+      return null;
+    }
+
+    try {
+      return handler.flakes != null ? Integer.valueOf(handler.flakes.toString().trim()) : null;
+    } catch (NumberFormatException e) {
+      logger.warn("Ignoring failsafe summary " + summary + " with invalid flakes count");
+      return null;
+    }
+  }
+
+  private static boolean isXmlFile(File file) {
+    return file.getName().endsWith(".xml") && file.isFile();
+  }
+
+  /** Collects the text of the {@code flakes} element below the {@code failsafe-summary} root */
+  private static final class FlakesHandler extends DefaultHandler {
+
+    private int depth;
+
+    private boolean inFlakes;
+
+    private StringBuilder flakes;
+
+    @Override
+    public void startElement(String uri, String localName, String qName, Attributes attributes) {
+      depth++;
+      if (depth == 2 && "flakes".equals(qName)) {
+        inFlakes = true;
+        flakes = new StringBuilder();
+      }
+    }
+
+    @Override
+    public void endElement(String uri, String localName, String qName) {
+      inFlakes = false;
+      depth--;
+    }
+
+    @Override
+    public void characters(char[] ch, int start, int length) {
+      if (inFlakes) {
+        flakes.append(ch, start, length);
+      }
+    }
+  }
+}
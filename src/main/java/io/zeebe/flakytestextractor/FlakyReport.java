@@ -0,0 +1,45 @@
+package io.zeebe.flakytestextractor;
+
+import java.io.File;
+import java.util.List;
+
+/** The flaky tests extracted from a single report file, as passed to a {@link FlakyTestSink}. */
+public final class FlakyReport {
+
+  private final File originalReport;
+
+  private final File generatedReport;
+
+  private final List<ExtendedReportTestSuite> flakyTestSuites;
+
+  /**
+   * @param originalReport report file the flaky tests were extracted from
+   * @param generatedReport XML report file the flaky tests are written to, {@code null} if no XML
+   *     reports are written
+   * @param flakyTestSuites test suites with only the flaky tests of the report
+   */
+  public FlakyReport(
+      File originalReport, File generatedReport, List<ExtendedReportTestSuite> flakyTestSuites) {
+    this.originalReport = originalReport;
+    this.generatedReport = generatedReport;
+    this.flakyTestSuites = flakyTestSuites;
+  }
+
+  /** @return the report file the flaky tests were extracted from */
+  public File getOriginalReport() {
+    return originalReport;
+  }
+
+  /**
+   * @return the XML report file the flaky tests are written to, {@code null} if no XML reports are
+   *     written
+   */
+  public File getGeneratedReport() {
+    return generatedReport;
+  }
+
+  /** @return the test suites with only the flaky tests of the report */
+  public List<ExtendedReportTestSuite> getFlakyTestSuites() {
+    return flakyTestSuites;
+  }
+}
@@ -0,0 +1,100 @@
+package io.zeebe.flakytestextractor;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Searches the raw bytes of a report file for the start tags of flaky results ({@code
+ * <flakyFailure} or {@code <flakyError}). Files without such a marker cannot contain flaky tests,
+ * so they do not need to be parsed at all.
+ *
+ * <p>The check is conservative: a match inside captured output only causes an unnecessary parse,
+ * and files that are not encoded in an ASCII compatible encoding (e.g. UTF-16) are always reported
+ * as candidates.
+ *
+ * <p>Instances reuse their read buffer and are therefore not thread-safe.
+ */
+public class FlakyReportPrescanner {
+
+  private static final byte[] MARKER = "<flaky".getBytes(US_ASCII);
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+  private long bytesRead;
+
+  /**
+   * @param reportFile report file to check
+   * @return {@code true} if the file may contain flaky test results and needs to be parsed
+   * @throws IOException if the file cannot be read
+   */
+  public boolean mayContainFlakyTests(File reportFile) throws IOException {
+    try (FileChannel channel = FileChannel.open(reportFile.toPath(), StandardOpenOption.READ)) {
+      buffer.clear();
+      boolean firstChunk = true;
+
+      int read;
+      while ((read = channel.read(buffer)) != -1) {
+        bytesRead += read;
+        buffer.flip();
+
+        if (firstChunk) {
+          if (!isAsciiCompatible(buffer)) {
+            return true;
+          }
+          firstChunk = false;
+        }
+
+        if (indexOfMarker(buffer) >= 0) {
+          return true;
+        }
+
+        // keep the tail of this chunk, a marker may span two reads
+        final int keep = Math.min(buffer.limit(), MARKER.length - 1);
+        buffer.position(buffer.limit() - keep);
+        buffer.compact();
+      }
+      return false;
+    }
+  }
+
+  /** @return number of bytes read by this instance so far */
+  public long getBytesRead() {
+    return bytesRead;
+  }
+
+  private static int indexOfMarker(ByteBuffer chunk) {
+    final int last = chunk.limit() - MARKER.length;
+    for (int i = 0; i <= last; i++) {
+      if (chunk.get(i) == '<' && matchesMarkerAt(chunk, i)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private static boolean matchesMarkerAt(ByteBuffer chunk, int offset) {
+    for (int j = 1; j < MARKER.length; j++) {
+      if (chunk.get(offset + j) != MARKER[j]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** Detects byte order marks and zero bytes of UTF-16/UTF-32 encoded documents. */
+  private static boolean isAsciiCompatible(ByteBuffer chunk) {
+    if (chunk.limit() < 2) {
+      return true;
+    }
+    final int b0 = chunk.get(0) & 0xFF;
+    final int b1 = chunk.get(1) & 0xFF;
+    return !(b0 == 0xFE && b1 == 0xFF) && !(b0 == 0xFF && b1 == 0xFE) && b0 != 0 && b1 != 0;
+  }
+}
@@ -0,0 +1,164 @@
+package io.zeebe.flakytestextractor;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.util.List;
+
+/**
+ * Writes a summary of the flaky tests as newline-delimited JSON, one object per flaky test case,
+ * next to the generated XML reports. Tools that only need the names, failures and times of the
+ * flaky tests can read the summary instead of parsing the reports.
+ *
+ * <p>The output of a test case is not part of the summary. Instead, {@code systemOut} and {@code
+ * systemErr} refer to the file that contains it. When the output was passed through from the
+ * original report, the reference also holds the byte range of the content in that report, see
+ * {@link XmlReporterWriter}; otherwise it refers to the generated report, or to the original report
+ * if no XML reports are written.
+ *
+ * <p>Instances are not thread-safe.
+ */
+public class FlakySummaryWriter implements FlakyTestSink {
+
+  private final File summaryFile;
+
+  private final String module;
+
+  private final Writer writer;
+
+  private final StringBuilder line = new StringBuilder();
+
+  private int testCases;
+
+  /**
+   * Creates the summary file, and its missing parent directories, right away, so that the file
+   * exists even if no flaky tests are found.
+   *
+   * @param summaryFile file to write the summary to
+   * @param module name of the module the reports belong to, may be {@code null}
+   * @throws IOException if the file cannot be created
+   */
+  public FlakySummaryWriter(File summaryFile, String module) throws IOException {
+    this.summaryFile = summaryFile;
+    this.module = module;
+
+    Files.createDirectories(summaryFile.getAbsoluteFile().getParentFile().toPath());
+    writer =
+        new BufferedWriter(
+            new OutputStreamWriter(Files.newOutputStream(summaryFile.toPath()), UTF_8));
+  }
+
+  @Override
+  public void write(List<FlakyReport> reports) throws IOException {
+    for (FlakyReport report : reports) {
+      add(report.getOriginalReport(), report.getGeneratedReport(), report.getFlakyTestSuites());
+    }
+    // the summary is read while the build is still running, so each batch is made visible
+    writer.flush();
+  }
+
+  /**
+   * Writes a line for each test case of the test suites.
+   *
+   * @param originalReport report file the flaky tests were extracted from
+   * @param generatedReport report file the flaky tests were written to, {@code null} if no XML
+   *     reports are written
+   * @param flakyTestSuites test suites with the flaky tests of the report
+   * @throws IOException if the summary cannot be written
+   */
+  public void add(
+      File originalReport, File generatedReport, List<ExtendedReportTestSuite> flakyTestSuites)
+      throws IOException {
+    for (ExtendedReportTestSuite testSuite : flakyTestSuites) {
+      for (ExtendedReportTestCase testCase : testSuite.getTestCases()) {
+        line.setLength(0);
+        line.append('{');
+        appendField("module", module).append(", ");
+        appendField("testsuite", testSuite.getFullClassName()).append(", ");
+        appendField("classname", testCase.getFullClassName()).append(", ");
+        appendField("name", testCase.getName()).append(", ");
+        appendTime(testCase.getTime()).append(", ");
+        appendField("failureType", testCase.getFailureType()).append(", ");
+        appendField("failureMessage", testCase.getFailureMessage()).append(", ");
+        appendField("report", originalReport.getAbsolutePath()).append(", ");
+        appendField(
+                "flakyReport", generatedReport != null ? generatedReport.getAbsolutePath() : null)
+            .append(", ");
+        appendOutputReference(
+            "systemOut",
+            testCase.getSystemOut(),
+            testCase.getSystemOutRange(),
+            originalReport,
+            generatedReport);
+        line.append(", ");
+        appendOutputReference(
+            "systemErr",
+            testCase.getSystemError(),
+            testCase.getSystemErrorRange(),
+            originalReport,
+            generatedReport);
+        line.append("}\n");
+
+        writer.append(line);
+        testCases++;
+      }
+    }
+  }
+
+  /** @return the file the summary is written to */
+  public File getSummaryFile() {
+    return summaryFile;
+  }
+
+  /** @return number of test cases written to the summary */
+  public int getTestCases() {
+    return testCases;
+  }
+
+  /**
+   * Writes the buffered lines to the file and closes it.
+   *
+   * @throws IOException if the summary cannot be written
+   */
+  @Override
+  public void close() throws IOException {
+    writer.close();
+  }
+
+  /** NaN and infinity are no JSON numbers, they are written as {@code null} */
+  private StringBuilder appendTime(float time) {
+    line.append("\"time\": ");
+    return Float.isFinite(time) ? line.append(time) : line.append("null");
+  }
+
+  private StringBuilder appendField(String name, String value) {
+    line.append('"').append(name).append("\": ");
+    if (value == null) {
+      line.append("null");
+    } else {
+      line.append('"').append(ExtractionMetrics.escapeJson(value)).append('"');
+    }
+    return line;
+  }
+
+  private void appendOutputReference(
+      String name, String output, ByteRange range, File originalReport, File generatedReport) {
+    if (range != null) {
+      line.append('"').append(name).append("\": {");
+      appendField("file", originalReport.getAbsolutePath());
+      line.append(", \"position\": ").append(range.getPosition());
+      line.append(", \"length\": ").append(range.getLength()).append('}');
+    } else if (output != null && !output.isEmpty()) {
+      final File file = generatedReport != null ? generatedReport : originalReport;
+      line.append('"').append(name).append("\": {");
+      appendField("file", file.getAbsolutePath()).append('}');
+    } else {
+      line.append('"').append(name).append("\": null");
+    }
+  }
+}
@@ -1,22 +1,34 @@
 package io.zeebe.flakytestextractor;
 
+import io.zeebe.flakytestextractor.ExtractionMetrics.Phase;
 import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
-import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
 import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.plugins.annotations.LifecyclePhase;
 import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.project.MavenProject;
 
-@Mojo(name = "extract-flaky-tests", defaultPhase = LifecyclePhase.POST_INTEGRATION_TEST)
+/**
+ * Extracts the flaky tests of a report directory. Executions for different modules may run
+ * concurrently in parallel builds, each execution only touches its own report directory and output
+ * files.
+ */
+@Mojo(
+    name = "extract-flaky-tests",
+    defaultPhase = LifecyclePhase.POST_INTEGRATION_TEST,
+    threadSafe = true)
 public class FlakyTestExtractorPlugin extends AbstractMojo {
 
-  private static final ReportTransformer TRANSFORMER = new ReportTransformer();
+  static final String DEFAULT_CONSOLIDATED_REPORT_FILE_NAME = "TEST-flaky-tests-FLAKY.xml";
 
   @Parameter(defaultValue = "${project.build.directory}/surefire-reports", property = "reportDir")
   protected File reportDir;
@@ -27,50 +39,225 @@ public class FlakyTestExtractorPlugin extends AbstractMojo {
   @Parameter(defaultValue = "false", property = "skipFlakyTestExtractor")
   protected boolean skip = false;
 
-  public void execute() throws MojoFailureException {
+  @Parameter(defaultValue = "true", property = "prescan")
+  protected boolean prescan = true;
+
+  @Parameter(property = "parserThreads")
+  protected int parserThreads = Runtime.getRuntime().availableProcessors();
+
+  @Parameter(defaultValue = "SAX", property = "parserEngine")
+  protected ParserEngine parserEngine = ParserEngine.SAX;
+
+  @Parameter(defaultValue = "65536", property = "inputBufferSize")
+  protected int inputBufferSize = TestSuiteXMLParser.DEFAULT_INPUT_BUFFER_SIZE;
+
+  @Parameter(defaultValue = "false", property = "incremental")
+  protected boolean incremental = false;
+
+  @Parameter(
+      defaultValue = "${project.build.directory}/flaky-test-extractor",
+      property = "incrementalCacheDir")
+  protected File incrementalCacheDir;
+
+  @Parameter(defaultValue = "false", property = "writeMetrics")
+  protected boolean writeMetrics = false;
+
+  @Parameter(
+      defaultValue = "${project.build.directory}/flaky-test-extractor/metrics.json",
+      property = "metricsFile")
+  protected File metricsFile;
+
+  @Parameter(defaultValue = "true", property = "prettyPrint")
+  protected boolean prettyPrint = true;
+
+  @Parameter(defaultValue = "false", property = "passthrough")
+  protected boolean passthrough = false;
+
+  @Parameter(defaultValue = "false", property = "consolidateReports")
+  protected boolean consolidateReports = false;
+
+  @Parameter(property = "consolidatedReportFile")
+  protected File consolidatedReportFile;
+
+  @Parameter(defaultValue = "false", property = "writeSummary")
+  protected boolean writeSummary = false;
+
+  @Parameter(
+      defaultValue = "${project.build.directory}/flaky-test-extractor/flaky-tests.ndjson",
+      property = "summaryFile")
+  protected File summaryFile;
+
+  @Parameter(defaultValue = "${project.artifactId}", readonly = true)
+  protected String moduleName;
+
+  @Parameter(defaultValue = "XML", property = "outputSinks")
+  protected List<OutputSinkType> outputSinks = Collections.singletonList(OutputSinkType.XML);
+
+  @Parameter(defaultValue = "16", property = "outputQueueCapacity")
+  protected int outputQueueCapacity = 16;
+
+  @Parameter(defaultValue = "true", property = "failsafeSummaryFastPath")
+  protected boolean failsafeSummaryFastPath = true;
+
+  /**
+   * Publishes the parsed test suites and the flaky tests as project context value. All reports are
+   * parsed in this mode, so {@link #prescan} and {@link #failsafeSummaryFastPath} have no effect.
+   */
+  @Parameter(defaultValue = "false", property = "publishResults")
+  protected boolean publishResults = false;
+
+  @Parameter(defaultValue = "${project}", readonly = true)
+  protected MavenProject project;
+
+  private final ReportTransformer transformer = new ReportTransformer();
+
+  public void execute() throws MojoExecutionException, MojoFailureException {
     if (skip) {
       getLog().info("extract-flaky-tests Plugin skipped");
       return;
     }
 
     getLog().info("FlakyTestExtractorPlugin - starting");
-    getLog().info("reportDir: " + reportDir.getAbsolutePath());
-    getLog().info("failBuild: " + failBuild);
-
-    boolean foundFlakyTests = false;
+    getLog().debug("reportDir: " + reportDir.getAbsolutePath());
+    getLog().debug("failBuild: " + failBuild);
+    getLog().debug("prescan: " + prescan);
+    getLog().debug("parserThreads: " + parserThreads);
+    getLog().debug("parserEngine: " + parserEngine);
+    getLog().debug("inputBufferSize: " + inputBufferSize);
+    getLog().debug("incremental: " + incremental);
+    getLog().debug("passthrough: " + passthrough);
+    getLog().debug("consolidateReports: " + consolidateReports);
+    getLog().debug("writeSummary: " + writeSummary);
+    getLog().debug("outputSinks: " + outputSinks);
+    getLog().debug("publishResults: " + publishResults);
+    if (publishResults && prescan) {
+      getLog().debug("prescan is disabled, all reports are parsed for the published results");
+    }
+    if (publishResults && failsafeSummaryFastPath) {
+      getLog()
+          .debug(
+              "failsafeSummaryFastPath is disabled, all reports are parsed for the published results");
+    }
 
-    XmlReporterWriter reportWriter = new XmlReporterWriter(reportDir);
+    final ExtractionMetrics metrics = new ExtractionMetrics();
+    final XmlReporterWriter reportWriter =
+        new XmlReporterWriter(reportDir).setPrettyPrint(prettyPrint);
+    final GeneratedReportsManifest manifest = GeneratedReportsManifest.load(reportDir, getLog());
 
-    ExtendedSurefireReportParser reportsParser =
+    final ExtendedSurefireReportParser reportsParser =
         new ExtendedSurefireReportParser(
-            Collections.singletonList(reportDir), Locale.getDefault(), getLog());
+                Collections.singletonList(reportDir), Locale.getDefault(), getLog())
+            // the prescan would leave the reports without flaky tests out of the published results
+            .setPrescan(prescan && !publishResults)
+            .setParserThreads(parserThreads)
+            .setParserEngine(parserEngine)
+            .setInputBufferSize(inputBufferSize)
+            .setExcludedReportFiles(manifest.getPreviousReports())
+            .setMetrics(metrics)
+            .setPassthrough(passthrough)
+            // only flaky tests are written, the output of all other tests is never needed
+            .setCaptureOutputOfFlakyTestsOnly(true);
 
-    try {
-      Map<File, List<ExtendedReportTestSuite>> testReports = reportsParser.parseXMLReportFiles();
+    XmlReporterWriter.ConsolidatedReport consolidatedReport = null;
+    if (consolidateReports) {
+      final File reportFile =
+          consolidatedReportFile != null
+              ? consolidatedReportFile
+              : new File(reportDir, DEFAULT_CONSOLIDATED_REPORT_FILE_NAME);
+      getLog().debug("consolidatedReportFile: " + reportFile.getAbsolutePath());
+      consolidatedReport = reportWriter.startConsolidatedReport(reportFile);
+    }
 
-      getLog().debug("testReports.size: " + testReports.size());
+    final boolean writesSummary = writeSummary || outputSinks.contains(OutputSinkType.SUMMARY);
 
-      for (File reportFile : testReports.keySet()) {
-        List<ExtendedReportTestSuite> testSuites = testReports.get(reportFile);
+    ReportFingerprintCache fingerprintCache = null;
+    if (incremental && consolidateReports) {
+      // the flaky tests of unchanged reports would be missing from the consolidated report
+      getLog().warn("incremental is ignored, all reports are parsed for the consolidated report");
+    } else if (incremental && writesSummary) {
+      // the summary is written anew in each run, it would miss the flaky tests of unchanged reports
+      getLog().warn("incremental is ignored, all reports are parsed for the summary");
+    } else if (incremental) {
+      final File cacheFile = new File(incrementalCacheDir, reportDir.getName() + ".cache");
+      getLog().debug("incremental cache: " + cacheFile.getAbsolutePath());
+      fingerprintCache =
+          ReportFingerprintCache.load(
+              cacheFile,
+              reportFile -> reportWriter.getFlakyReportFile(reportFile).isFile(),
+              getLog());
+      reportsParser.setFingerprintCache(fingerprintCache);
+    }
 
-        List<ExtendedReportTestSuite> testSuitesWithOnlyFlakyTests =
-            testSuites.stream()
-                .map(TRANSFORMER::transform)
-                .filter(Optional::isPresent)
-                .map(Optional::get)
-                .collect(Collectors.toList());
+    final List<FlakyTestSink> sinks = new ArrayList<>();
+    XmlReportSink xmlSink = null;
+    if (outputSinks.contains(OutputSinkType.XML)) {
+      xmlSink = new XmlReportSink(reportWriter, consolidatedReport, metrics);
+      sinks.add(xmlSink);
+    }
+    FlakySummaryWriter summaryWriter = null;
+    if (writesSummary) {
+      summaryWriter = openSummary();
+      if (summaryWriter != null) {
+        sinks.add(summaryWriter);
+      }
+    }
 
-        getLog().debug("testSuitesWithOnlyFlakyTests.size: " + testSuitesWithOnlyFlakyTests.size());
+    final AsyncSinkDispatcher dispatcher =
+        new AsyncSinkDispatcher(sinks, outputQueueCapacity, getLog());
+    final PublishedResults results =
+        publishResults && project != null ? new PublishedResults() : null;
+    final ExtractingReportHandler handler =
+        new ExtractingReportHandler(xmlSink, dispatcher, results, manifest, metrics);
 
-        if (!testSuitesWithOnlyFlakyTests.isEmpty()) {
-          foundFlakyTests = true;
-          reportWriter.writeXMLReport(reportFile, testSuitesWithOnlyFlakyTests);
+    // skipped reports would be missing from the published results, like with the prescan
+    final boolean skipReports =
+        failsafeSummaryFastPath
+            && !publishResults
+            && FailsafeSummaryCheck.reportsNoFlakyTests(
+                reportDir, manifest.getPreviousReports(), getLog());
+    try {
+      try {
+        if (skipReports) {
+          getLog().info("Skipping reports, the failsafe summary counts no flaky tests");
+        } else {
+          reportsParser.parseXMLReportFiles(handler);
         }
+      } finally {
+        // waits for the output of all reports, also completing the consolidated report
+        dispatcher.close();
       }
+      // only once all reports were handled it is known which generated reports are stale
+      manifest.deleteStaleReports();
+      manifest.save();
     } catch (ParsingException e) {
       getLog().error(e);
+    } catch (Error | IllegalStateException e) {
+      // rethrown by the dispatcher if a sink failed, while parsing or when closing it
+      throw new MojoExecutionException("Output of the flaky tests failed", e);
     }
 
+    // the cache would lose all entries if it was saved without looking up the reports
+    if (fingerprintCache != null && !skipReports) {
+      fingerprintCache.save();
+    }
+
+    if (results != null) {
+      results.publish(project, reportDir);
+    }
+
+    if (summaryWriter != null) {
+      metrics.recordBytesWritten(Phase.WRITE, summaryWriter.getSummaryFile().length());
+      getLog().debug("summary.testCases: " + summaryWriter.getTestCases());
+    }
+
+    getLog().debug("testReports.size: " + handler.parsedReports);
+    getLog().debug("unchangedReports.size: " + handler.unchangedReports);
+
+    metrics.finish();
+    reportMetrics(metrics);
+
+    final boolean foundFlakyTests = handler.reportsWithFlakyTests > 0;
+
     if (foundFlakyTests && failBuild) {
       getLog().info("FlakyTestExtractorPlugin - finished and about to fail the build");
       throw new MojoFailureException("Flaky tests encountered");
@@ -78,4 +265,152 @@ public class FlakyTestExtractorPlugin extends AbstractMojo {
 
     getLog().info("FlakyTestExtractorPlugin - finished");
   }
+
+  private void reportMetrics(ExtractionMetrics metrics) {
+    // the table is only of interest when looking into the metrics, not in every module of a build
+    if (writeMetrics) {
+      getLog().info("FlakyTestExtractorPlugin - metrics");
+      for (String line : metrics.toTable()) {
+        getLog().info(line);
+      }
+    } else if (getLog().isDebugEnabled()) {
+      getLog().debug("FlakyTestExtractorPlugin - metrics");
+      for (String line : metrics.toTable()) {
+        getLog().debug(line);
+      }
+    }
+
+    if (writeMetrics) {
+      try {
+        metrics.writeJson(metricsFile, reportDir);
+        getLog().info("metricsFile: " + metricsFile.getAbsolutePath());
+      } catch (IOException e) {
+        getLog().warn("Could not write metrics to " + metricsFile + ": " + e.getMessage());
+      }
+    }
+  }
+
+  private FlakySummaryWriter openSummary() {
+    try {
+      final FlakySummaryWriter summaryWriter = new FlakySummaryWriter(summaryFile, moduleName);
+      getLog().debug("summaryFile: " + summaryFile.getAbsolutePath());
+      return summaryWriter;
+    } catch (IOException e) {
+      getLog().warn("Could not write summary to " + summaryFile + ": " + e.getMessage());
+      return null;
+    }
+  }
+
+  private FlakyReport extractFlakyTests(
+      XmlReportSink xmlSink,
+      AsyncSinkDispatcher dispatcher,
+      ExtractionMetrics metrics,
+      File reportFile,
+      List<ExtendedReportTestSuite> testSuites) {
+    final long transformStart = ExtractionMetrics.startTimer();
+    List<ExtendedReportTestSuite> testSuitesWithOnlyFlakyTests =
+        testSuites.stream()
+            .map(transformer::transform)
+            .filter(Optional::isPresent)
+            .map(Optional::get)
+            .collect(Collectors.toList());
+    metrics.recordTime(Phase.TRANSFORM, transformStart);
+    metrics.recordFiles(Phase.TRANSFORM, 1, 0);
+    int testCases = 0;
+    for (ExtendedReportTestSuite testSuite : testSuites) {
+      testCases += testSuite.getNumberOfTests();
+    }
+    int flakes = 0;
+    for (ExtendedReportTestSuite testSuite : testSuitesWithOnlyFlakyTests) {
+      flakes += testSuite.getTestCases().size();
+    }
+    metrics.recordTestCases(Phase.TRANSFORM, testCases, flakes);
+
+    getLog().debug("testSuitesWithOnlyFlakyTests.size: " + testSuitesWithOnlyFlakyTests.size());
+
+    if (testSuitesWithOnlyFlakyTests.isEmpty()) {
+      return null;
+    }
+
+    final File generatedReport = xmlSink != null ? xmlSink.getGeneratedReport(reportFile) : null;
+    final FlakyReport flakyReport =
+        new FlakyReport(reportFile, generatedReport, testSuitesWithOnlyFlakyTests);
+    dispatcher.submit(flakyReport);
+    return flakyReport;
+  }
+
+  /**
+   * Transforms each report right after it was parsed and queues its flaky tests for the sinks, so
+   * that only the parsed reports waiting for output are kept in memory, unless the results are
+   * published. Unchanged reports of the incremental mode still count towards the flaky tests found,
+   * their output was written by a previous run and is retained.
+   */
+  private final class ExtractingReportHandler implements ParsedReportHandler {
+
+    private final XmlReportSink xmlSink;
+
+    private final AsyncSinkDispatcher dispatcher;
+
+    private final PublishedResults results;
+
+    private final GeneratedReportsManifest manifest;
+
+    private final ExtractionMetrics metrics;
+
+    private int parsedReports;
+
+    private int unchangedReports;
+
+    private int reportsWithFlakyTests;
+
+    private ExtractingReportHandler(
+        XmlReportSink xmlSink,
+        AsyncSinkDispatcher dispatcher,
+        PublishedResults results,
+        GeneratedReportsManifest manifest,
+        ExtractionMetrics metrics) {
+      this.xmlSink = xmlSink;
+      this.dispatcher = dispatcher;
+      this.results = results;
+      this.manifest = manifest;
+      this.metrics = metrics;
+    }
+
+    @Override
+    public void handle(File reportFile, List<ExtendedReportTestSuite> testSuites) {
+      parsedReports++;
+      if (results != null) {
+        results.addTestSuites(reportFile, testSuites);
+      }
+      final FlakyReport flakyReport =
+          extractFlakyTests(xmlSink, dispatcher, metrics, reportFile, testSuites);
+      if (flakyReport != null) {
+        reportsWithFlakyTests++;
+        recordGeneratedReport(reportFile);
+        if (results != null) {
+          results.addFlakyTests(flakyReport);
+        }
+      }
+    }
+
+    @Override
+    public void handleUnchanged(File reportFile, int numberOfFlakes) {
+      unchangedReports++;
+      if (numberOfFlakes > 0) {
+        reportsWithFlakyTests++;
+        recordGeneratedReport(reportFile);
+      }
+    }
+
+    private void recordGeneratedReport(File reportFile) {
+      if (xmlSink == null) {
+        return;
+      }
+      // the file name is known before the sink writes it; the manifest is saved after all output
+      final File generatedReport = xmlSink.getGeneratedReport(reportFile);
+      if (reportDir.getAbsoluteFile().equals(generatedReport.getAbsoluteFile().getParentFile())) {
+        manifest.add(generatedReport);
+      }
+    }
+  }
 }
@@ -0,0 +1,32 @@
+package io.zeebe.flakytestextractor;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Destination for the flaky tests extracted from the reports, e.g. {@link XmlReportSink} for the
+ * XML reports. Sinks are fed by an {@link AsyncSinkDispatcher} on a background thread, so they may
+ * block on I/O without holding up the parsing of the next reports.
+ *
+ * <p>The reports are passed in batches of those that were extracted while the sink was busy, in the
+ * order in which they were extracted, so that a sink can combine their writes. A sink is only
+ * called by one thread at a time.
+ */
+public interface FlakyTestSink extends Closeable {
+
+  /**
+   * @param reports reports with flaky tests, in the order in which they were extracted; never empty
+   * @throws IOException if the sink cannot write the reports; the sink is not called again then,
+   *     except for {@link #close()}
+   */
+  void write(List<FlakyReport> reports) throws IOException;
+
+  /**
+   * Completes the output after the last batch was written.
+   *
+   * @throws IOException if the output cannot be completed
+   */
+  @Override
+  void close() throws IOException;
+}
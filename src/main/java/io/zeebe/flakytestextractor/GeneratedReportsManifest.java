@@ -0,0 +1,112 @@
+package io.zeebe.flakytestextractor;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.Set;
+import java.util.TreeSet;
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * List of the report files this plugin has written into a report directory. The generated files end
+ * in {@code .xml} like the reports written by Surefire, so without the list a later run would parse
+ * them again.
+ *
+ * <p>The manifest is stored as a {@code .txt} file in the report directory itself, which the report
+ * scan already excludes. Generated files of a previous run that are neither written again nor
+ * retained by the current run are stale and deleted by {@link #deleteStaleReports()}.
+ */
+public class GeneratedReportsManifest {
+
+  static final String MANIFEST_FILE_NAME = "flaky-test-extractor-reports.txt";
+
+  private final File reportDir;
+
+  private final Log logger;
+
+  private final Set<String> previousReports;
+
+  private final Set<String> currentReports = new TreeSet<>();
+
+  private GeneratedReportsManifest(File reportDir, Log logger, Set<String> previousReports) {
+    this.reportDir = reportDir;
+    this.logger = logger;
+    this.previousReports = previousReports;
+  }
+
+  /**
+   * Loads the manifest of the report directory. A missing or unreadable manifest results in an
+   * empty manifest.
+   *
+   * @param reportDir report directory
+   * @param logger logger
+   * @return the loaded manifest
+   */
+  public static GeneratedReportsManifest load(File reportDir, Log logger) {
+    final File manifestFile = new File(reportDir, MANIFEST_FILE_NAME);
+    final Set<String> reports = new TreeSet<>();
+    if (manifestFile.isFile()) {
+      try {
+        for (String line : Files.readAllLines(manifestFile.toPath(), UTF_8)) {
+          if (!line.isEmpty()) {
+            reports.add(line);
+          }
+        }
+      } catch (IOException e) {
+        logger.warn("Ignoring unreadable manifest " + manifestFile + ": " + e.getMessage());
+      }
+    }
+    return new GeneratedReportsManifest(reportDir, logger, reports);
+  }
+
+  /** @return the report files that were generated by a previous run */
+  public Set<File> getPreviousReports() {
+    final Set<File> files = new TreeSet<>();
+    for (String report : previousReports) {
+      files.add(new File(reportDir, report));
+    }
+    return Collections.unmodifiableSet(files);
+  }
+
+  /**
+   * Records a report file that was written, or retained from a previous run, by the current run.
+   *
+   * @param generatedReport the generated report file
+   */
+  public void add(File generatedReport) {
+    currentReports.add(generatedReport.getName());
+  }
+
+  /** Deletes the report files that were generated by a previous run, but not by the current one. */
+  public void deleteStaleReports() {
+    for (String report : previousReports) {
+      if (!currentReports.contains(report)) {
+        final File staleReport = new File(reportDir, report);
+        try {
+          if (Files.deleteIfExists(staleReport.toPath())) {
+            logger.debug("Deleted stale report " + staleReport.getName());
+          }
+        } catch (IOException e) {
+          logger.warn("Could not delete stale report " + staleReport + ": " + e.getMessage());
+        }
+      }
+    }
+  }
+
+  /** Writes the report files recorded by the current run to the manifest. */
+  public void save() {
+    final File manifestFile = new File(reportDir, MANIFEST_FILE_NAME);
+    try {
+      if (currentReports.isEmpty()) {
+        Files.deleteIfExists(manifestFile.toPath());
+      } else {
+        Files.write(manifestFile.toPath(), currentReports, UTF_8);
+      }
+    } catch (IOException e) {
+      logger.warn("Could not write manifest " + manifestFile + ": " + e.getMessage());
+    }
+  }
+}
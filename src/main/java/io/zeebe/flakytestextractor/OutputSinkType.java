@@ -0,0 +1,11 @@
+package io.zeebe.flakytestextractor;
+
+/** The sinks that can be selected for the extracted flaky tests, see {@link FlakyTestSink}. */
+public enum OutputSinkType {
+
+  /** XML reports in the Surefire format, see {@link XmlReportSink}. */
+  XML,
+
+  /** Newline-delimited JSON summary, see {@link FlakySummaryWriter}. */
+  SUMMARY
+}
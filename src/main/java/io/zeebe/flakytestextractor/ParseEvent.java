@@ -0,0 +1,24 @@
+package io.zeebe.flakytestextractor;
+
+/**
+ * JDK Flight Recorder event for parsing a single report file. This is the version for Java 8, which
+ * records nothing; the multi-release JAR contains the recorded version for Java 11 and later.
+ */
+public class ParseEvent {
+
+  public void begin() {}
+
+  public boolean shouldCommit() {
+    return false;
+  }
+
+  public void commit() {}
+
+  public void setReportFile(String reportFile) {}
+
+  public void setFileSize(long fileSize) {}
+
+  public void setTestCases(int testCases) {}
+
+  public void setFlakyTestCases(int flakyTestCases) {}
+}
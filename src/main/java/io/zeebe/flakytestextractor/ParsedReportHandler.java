@@ -0,0 +1,29 @@
+package io.zeebe.flakytestextractor;
+
+import java.io.File;
+import java.util.List;
+
+/**
+ * Callback for report files parsed by {@link ExtendedSurefireReportParser}. The parser does not
+ * keep a reference to the test suites after the handler returns, so handlers that do not retain
+ * them allow the parsed content to be garbage collected file by file.
+ */
+@FunctionalInterface
+public interface ParsedReportHandler {
+
+  /**
+   * @param reportFile the report file that was parsed
+   * @param testSuites the test suites contained in the report file
+   */
+  void handle(File reportFile, List<ExtendedReportTestSuite> testSuites);
+
+  /**
+   * Called instead of {@link #handle(File, List)} for report files that were not parsed again
+   * because they are unchanged since they were last processed.
+   *
+   * @param reportFile the unchanged report file
+   * @param numberOfFlakes the number of flaky tests found when the file was last processed
+   * @see ExtendedSurefireReportParser#setFingerprintCache(ReportFingerprintCache)
+   */
+  default void handleUnchanged(File reportFile, int numberOfFlakes) {}
+}
@@ -0,0 +1,40 @@
+package io.zeebe.flakytestextractor;
+
+import org.apache.maven.plugin.logging.Log;
+
+/** The available implementations of {@link TestSuiteXMLParser}. */
+public enum ParserEngine {
+
+  /** Push parser based on SAX, see {@link ExtendedTestSuiteXMLParser}. */
+  SAX {
+    @Override
+    public TestSuiteXMLParser createParser(Log logger) {
+      return new ExtendedTestSuiteXMLParser(logger);
+    }
+  },
+
+  /** Pull parser based on StAX, see {@link StaxTestSuiteXMLParser}. */
+  STAX {
+    @Override
+    public TestSuiteXMLParser createParser(Log logger) {
+      return new StaxTestSuiteXMLParser(logger);
+    }
+  },
+
+  /**
+   * Tokenizer for the subset of XML that Surefire writes, which falls back to the SAX engine for
+   * other reports, see {@link TokenizerTestSuiteXMLParser}.
+   */
+  TOKENIZER {
+    @Override
+    public TestSuiteXMLParser createParser(Log logger) {
+      return new TokenizerTestSuiteXMLParser(logger);
+    }
+  };
+
+  /**
+   * @param logger logger for warnings about the parsed reports
+   * @return a new parser instance of this engine
+   */
+  public abstract TestSuiteXMLParser createParser(Log logger);
+}
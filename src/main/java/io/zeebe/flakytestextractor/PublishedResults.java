@@ -0,0 +1,102 @@
+package io.zeebe.flakytestextractor;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.maven.project.MavenProject;
+
+/**
+ * Results of the executions of this plugin, published as a context value of the Maven project so
+ * that later mojos of the same build can use them without parsing the reports again.
+ *
+ * <p>The context value {@value #CONTEXT_KEY} is a map from the absolute path of each report
+ * directory to the results of the execution for that directory. The results are a map with the
+ * following entries:
+ *
+ * <ul>
+ *   <li>{@value #TEST_SUITES}: map from the absolute path of each parsed report file to its {@link
+ *       ExtendedReportTestSuite}s. The output of tests that are not flaky is not part of them.
+ *   <li>{@value #FLAKY_TESTS}: list with a map for each flaky test, with the entries {@code
+ *       testsuite}, {@code classname}, {@code name}, {@code time}, {@code failureType}, {@code
+ *       failureMessage} and {@code report}. All keys and values are strings, except for the time,
+ *       which is a {@link Float}.
+ * </ul>
+ *
+ * <p>Mojos of other plugins are loaded by other class loaders and cannot cast the test suites, but
+ * they can read the flaky tests, which consist of JDK types only. Reports that were not parsed,
+ * e.g. unchanged reports of the incremental mode, are not part of the results.
+ */
+public final class PublishedResults {
+
+  /** Key of the context value in the Maven project */
+  public static final String CONTEXT_KEY = "io.zeebe.flakytestextractor.results";
+
+  /** Key of the parsed test suites in the results of a report directory */
+  public static final String TEST_SUITES = "testSuites";
+
+  /** Key of the flaky tests in the results of a report directory */
+  public static final String FLAKY_TESTS = "flakyTests";
+
+  private final Map<String, List<ExtendedReportTestSuite>> testSuites = new LinkedHashMap<>();
+
+  private final List<Map<String, Object>> flakyTests = new ArrayList<>();
+
+  /**
+   * @param reportFile report file that was parsed
+   * @param reportTestSuites the test suites of the report file
+   */
+  public void addTestSuites(File reportFile, List<ExtendedReportTestSuite> reportTestSuites) {
+    testSuites.put(reportFile.getAbsolutePath(), Collections.unmodifiableList(reportTestSuites));
+  }
+
+  /** @param flakyReport the flaky tests of a report file */
+  public void addFlakyTests(FlakyReport flakyReport) {
+    for (ExtendedReportTestSuite testSuite : flakyReport.getFlakyTestSuites()) {
+      for (ExtendedReportTestCase testCase : testSuite.getTestCases()) {
+        final Map<String, Object> flakyTest = new LinkedHashMap<>();
+        flakyTest.put("testsuite", testSuite.getFullClassName());
+        flakyTest.put("classname", testCase.getFullClassName());
+        flakyTest.put("name", testCase.getName());
+        flakyTest.put("time", testCase.getTime());
+        flakyTest.put("failureType", testCase.getFailureType());
+        flakyTest.put("failureMessage", testCase.getFailureMessage());
+        flakyTest.put("report", flakyReport.getOriginalReport().getAbsolutePath());
+        flakyTests.add(Collections.unmodifiableMap(flakyTest));
+      }
+    }
+  }
+
+  /**
+   * Publishes the results as the results of the report directory, replacing those of a previous
+   * execution for the same directory.
+   *
+   * @param project project to publish the results in
+   * @param reportDir report directory the results belong to
+   */
+  public void publish(MavenProject project, File reportDir) {
+    final Map<String, Object> results = new LinkedHashMap<>();
+    results.put(TEST_SUITES, Collections.unmodifiableMap(testSuites));
+    results.put(FLAKY_TESTS, Collections.unmodifiableList(flakyTests));
+
+    // executions of different modules may run in parallel, but those of a project do not
+    Map<String, Map<String, Object>> resultsByReportDir = lookup(project);
+    if (resultsByReportDir == null) {
+      resultsByReportDir = new ConcurrentHashMap<>();
+      project.setContextValue(CONTEXT_KEY, resultsByReportDir);
+    }
+    resultsByReportDir.put(reportDir.getAbsolutePath(), Collections.unmodifiableMap(results));
+  }
+
+  /**
+   * @param project project the results were published in
+   * @return the results by report directory, {@code null} if no results were published
+   */
+  @SuppressWarnings("unchecked")
+  public static Map<String, Map<String, Object>> lookup(MavenProject project) {
+    return (Map<String, Map<String, Object>>) project.getContextValue(CONTEXT_KEY);
+  }
+}
@@ -0,0 +1,378 @@
+package io.zeebe.flakytestextractor;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Locates the stack traces and system output of flaky test cases in the raw bytes of a report file,
+ * for the passthrough mode of {@link TestSuiteXMLParser}. The located ranges cover the content of
+ * the elements as it is stored in the file, i.e. including CDATA markup and character references,
+ * so that it can be copied into another UTF-8 encoded document without decoding it. That is only
+ * possible for reports encoded in UTF-8 or US-ASCII; the content of reports in other encodings,
+ * which the parsers read as well, is decoded and written as text.
+ *
+ * <p>Like {@link TestSuiteModelBuilder}, the last {@code stackTrace}, {@code failure} or {@code
+ * error} element of a test case provides its failure detail, and the last {@code system-out} and
+ * {@code system-err} elements provide its output, whether they are nested in a flaky result or not.
+ * Elements with blank content have no range.
+ *
+ * <p>The locator only understands the markup that occurs in Surefire reports; it does not check
+ * that the report is well-formed, which the parser already did. Reports with a document type
+ * declaration are not located at all, because the content may refer to entities declared in it,
+ * which are only valid in the original report.
+ */
+final class ReportContentLocator {
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private static final int OTHER = 0;
+
+  private static final int TESTCASE = 1;
+
+  private static final int FLAKY_RESULT = 2;
+
+  private static final int FAILURE_DETAIL = 3;
+
+  private static final int SYSTEM_OUT = 4;
+
+  private static final int SYSTEM_ERR = 5;
+
+  private static final String[] ELEMENT_NAMES = {
+    "testcase",
+    "flakyFailure",
+    "flakyError",
+    "stackTrace",
+    "failure",
+    "error",
+    "system-out",
+    "system-err"
+  };
+
+  private static final int[] ELEMENT_CODES = {
+    TESTCASE,
+    FLAKY_RESULT,
+    FLAKY_RESULT,
+    FAILURE_DETAIL,
+    FAILURE_DETAIL,
+    FAILURE_DETAIL,
+    SYSTEM_OUT,
+    SYSTEM_ERR
+  };
+
+  private static final int MAX_NAME_LENGTH = 16;
+
+  private final InputStream in;
+
+  private final byte[] buffer = new byte[BUFFER_SIZE];
+
+  private final byte[] name = new byte[MAX_NAME_LENGTH];
+
+  private final List<TestCaseContent> flakyTestCaseContents = new ArrayList<>();
+
+  private int index;
+
+  private int limit;
+
+  private long bufferPosition;
+
+  private TestCaseContent currentTestCase;
+
+  private int openContent = OTHER;
+
+  private long contentStart;
+
+  private boolean contentBlank;
+
+  private boolean documentType;
+
+  private ReportContentLocator(InputStream in) {
+    this.in = in;
+  }
+
+  /**
+   * Sets the ranges of the failure detail and output of the flaky test cases of a report.
+   *
+   * @param reportFile the report file
+   * @param encoding encoding the parser decoded the report in, {@code null} if unknown
+   * @param flakyTestCases flaky test cases parsed from the report, in document order
+   * @return {@code false} if the content cannot be copied in that encoding or the report has a
+   *     document type declaration, or if the flaky test cases in the file do not match the given
+   *     ones; no ranges are set then
+   * @throws IOException if the report file cannot be read
+   */
+  static boolean locate(
+      File reportFile, String encoding, List<ExtendedReportTestCase> flakyTestCases)
+      throws IOException {
+    if (!isCopyableAsUtf8(encoding)) {
+      return false;
+    }
+
+    final List<TestCaseContent> contents;
+    try (InputStream in = new FileInputStream(reportFile)) {
+      final ReportContentLocator locator = new ReportContentLocator(in);
+      locator.scan();
+      if (locator.documentType) {
+        return false;
+      }
+      contents = locator.flakyTestCaseContents;
+    }
+
+    if (contents.size() != flakyTestCases.size()) {
+      return false;
+    }
+    for (int i = 0; i < contents.size(); i++) {
+      final TestCaseContent content = contents.get(i);
+      flakyTestCases
+          .get(i)
+          .setFailureDetailRange(content.failureDetail)
+          .setSystemOutRange(content.systemOut)
+          .setSystemErrorRange(content.systemErr);
+    }
+    return true;
+  }
+
+  /** @return {@code true} if bytes in the encoding are the same in UTF-8 */
+  static boolean isCopyableAsUtf8(String encoding) {
+    if (encoding == null) {
+      return false;
+    }
+    try {
+      final Charset charset = Charset.forName(encoding);
+      return charset.equals(UTF_8) || charset.equals(US_ASCII);
+    } catch (IllegalArgumentException e) {
+      // the parser knows an encoding that the JDK does not
+      return false;
+    }
+  }
+
+  private void scan() throws IOException {
+    int c;
+    while (!documentType && (c = read()) != -1) {
+      if (c == '<') {
+        readMarkup(position() - 1);
+      } else if (!isWhitespace(c)) {
+        contentBlank = false;
+      }
+    }
+  }
+
+  private void readMarkup(long markupStart) throws IOException {
+    final int c = read();
+    if (c == '!') {
+      final int next = read();
+      if (next == '[') {
+        readCdata();
+      } else if (next == '-') {
+        contentBlank = false;
+        skipPast("-->");
+      } else {
+        // the document type declaration is the only other markup of this kind before the root
+        documentType = true;
+      }
+    } else if (c == '?') {
+      contentBlank = false;
+      skipPast("?>");
+    } else if (c == '/') {
+      final int element = readName(read());
+      skipPast(">");
+      endElement(element, markupStart);
+    } else {
+      contentBlank = false;
+      final int element = readName(c);
+      final boolean emptyElement = skipAttributes();
+      startElement(element);
+      if (emptyElement) {
+        endElement(element, position());
+      }
+    }
+  }
+
+  private void readCdata() throws IOException {
+    skipPast("CDATA[");
+    // a byte is content once the two bytes after it turn out not to end the section
+    int beforePrevious = -1;
+    int previous = -1;
+    int c;
+    while ((c = read()) != -1) {
+      if (c == '>' && previous == ']' && beforePrevious == ']') {
+        return;
+      }
+      if (beforePrevious != -1 && !isWhitespace(beforePrevious)) {
+        contentBlank = false;
+      }
+      beforePrevious = previous;
+      previous = c;
+    }
+  }
+
+  private void startElement(int element) {
+    switch (element) {
+      case TESTCASE:
+        currentTestCase = new TestCaseContent();
+        break;
+      case FLAKY_RESULT:
+        if (currentTestCase != null) {
+          currentTestCase.flaky = true;
+        }
+        break;
+      case FAILURE_DETAIL:
+      case SYSTEM_OUT:
+      case SYSTEM_ERR:
+        if (currentTestCase != null) {
+          openContent = element;
+          contentStart = position();
+          contentBlank = true;
+        }
+        break;
+      default:
+        break;
+    }
+  }
+
+  private void endElement(int element, long contentEnd) {
+    if (element == TESTCASE) {
+      if (currentTestCase != null && currentTestCase.flaky) {
+        flakyTestCaseContents.add(currentTestCase);
+      }
+      currentTestCase = null;
+      return;
+    }
+
+    if (currentTestCase == null || element != openContent) {
+      return;
+    }
+    final ByteRange range =
+        contentBlank ? null : new ByteRange(contentStart, contentEnd - contentStart);
+    switch (element) {
+      case FAILURE_DETAIL:
+        currentTestCase.failureDetail = range;
+        break;
+      case SYSTEM_OUT:
+        currentTestCase.systemOut = range;
+        break;
+      default:
+        currentTestCase.systemErr = range;
+        break;
+    }
+    openContent = OTHER;
+  }
+
+  /**
+   * @param first first character of the name
+   * @return the code of the element, {@link #OTHER} for elements without relevant content
+   */
+  private int readName(int first) throws IOException {
+    int length = 0;
+    int c = first;
+    while (c != -1 && c != '>' && c != '/' && !isWhitespace(c)) {
+      if (length < MAX_NAME_LENGTH) {
+        name[length] = (byte) c;
+      }
+      length++;
+      c = read();
+    }
+    if (c != -1) {
+      unread();
+    }
+    return length <= MAX_NAME_LENGTH ? elementCode(length) : OTHER;
+  }
+
+  private int elementCode(int length) {
+    for (int i = 0; i < ELEMENT_NAMES.length; i++) {
+      if (matchesName(ELEMENT_NAMES[i], length)) {
+        return ELEMENT_CODES[i];
+      }
+    }
+    return OTHER;
+  }
+
+  private boolean matchesName(String elementName, int length) {
+    if (elementName.length() != length) {
+      return false;
+    }
+    for (int i = 0; i < length; i++) {
+      if (name[i] != elementName.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** @return {@code true} if the start tag ends with {@code />} */
+  private boolean skipAttributes() throws IOException {
+    int quote = 0;
+    int previous = 0;
+    int c;
+    while ((c = read()) != -1) {
+      if (quote != 0) {
+        if (c == quote) {
+          quote = 0;
+        }
+      } else if (c == '"' || c == '\'') {
+        quote = c;
+      } else if (c == '>') {
+        return previous == '/';
+      }
+      previous = c;
+    }
+    return false;
+  }
+
+  private void skipPast(String end) throws IOException {
+    int matched = 0;
+    int c;
+    while (matched < end.length() && (c = read()) != -1) {
+      if (c == end.charAt(matched)) {
+        matched++;
+      } else if (matched == 0 || c != end.charAt(0) || end.charAt(matched - 1) != c) {
+        // a repeated first character, like the third '-' of "--->", keeps the match
+        matched = c == end.charAt(0) ? 1 : 0;
+      }
+    }
+  }
+
+  private int read() throws IOException {
+    if (index == limit) {
+      bufferPosition += limit;
+      index = 0;
+      limit = Math.max(0, in.read(buffer));
+      if (limit == 0) {
+        return -1;
+      }
+    }
+    return buffer[index++] & 0xFF;
+  }
+
+  /** Steps back by the byte that was read last; only called right after {@link #read()}. */
+  private void unread() {
+    index--;
+  }
+
+  /** @return offset in the file of the next byte to be read */
+  private long position() {
+    return bufferPosition + index;
+  }
+
+  private static boolean isWhitespace(int c) {
+    return c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\f';
+  }
+
+  private static final class TestCaseContent {
+
+    private boolean flaky;
+
+    private ByteRange failureDetail;
+
+    private ByteRange systemOut;
+
+    private ByteRange systemErr;
+  }
+}
@@ -0,0 +1,226 @@
+package io.zeebe.flakytestextractor;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+import java.util.zip.CRC32;
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Persistent cache of the outcome of previously processed report files, used by the incremental
+ * mode. Entries are keyed by the report path and only match if size, modification time and a hash
+ * of the content are unchanged.
+ *
+ * <p>The cache stores the number of flaky tests found in each report. Reports with flaky tests can
+ * only be skipped as long as the output written for them still exists, which is checked by the
+ * predicate given to {@link #load(File, Predicate, Log)}.
+ *
+ * <p>Lookups are thread-safe. Only entries that were looked up or updated since loading are written
+ * back by {@link #save()}, so reports that no longer exist are dropped.
+ */
+public class ReportFingerprintCache {
+
+  private static final String HEADER = "# flaky-test-extractor report cache v1";
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private final File cacheFile;
+
+  private final Predicate<File> outputOfFlakyReportExists;
+
+  private final Log logger;
+
+  private final Map<String, Entry> previousEntries;
+
+  private final Map<String, Entry> currentEntries = new ConcurrentHashMap<>();
+
+  private ReportFingerprintCache(
+      File cacheFile,
+      Predicate<File> outputOfFlakyReportExists,
+      Log logger,
+      Map<String, Entry> previousEntries) {
+    this.cacheFile = cacheFile;
+    this.outputOfFlakyReportExists = outputOfFlakyReportExists;
+    this.logger = logger;
+    this.previousEntries = previousEntries;
+  }
+
+  /**
+   * Loads the cache. A missing or unreadable cache file results in an empty cache.
+   *
+   * @param cacheFile file the cache is read from and written to
+   * @param outputOfFlakyReportExists checks whether the output written for a report with flaky
+   *     tests still exists
+   * @param logger logger
+   * @return the loaded cache
+   */
+  public static ReportFingerprintCache load(
+      File cacheFile, Predicate<File> outputOfFlakyReportExists, Log logger) {
+    final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    if (cacheFile.isFile()) {
+      try (BufferedReader reader = Files.newBufferedReader(cacheFile.toPath(), UTF_8)) {
+        String line = reader.readLine();
+        if (HEADER.equals(line)) {
+          while ((line = reader.readLine()) != null) {
+            final String[] fields = line.split("\t", 5);
+            entries.put(
+                fields[4],
+                new Entry(
+                    new Fingerprint(
+                        Long.parseLong(fields[0]), Long.parseLong(fields[1]), fields[2]),
+                    Integer.parseInt(fields[3])));
+          }
+        }
+      } catch (IOException | RuntimeException e) {
+        logger.warn("Ignoring unreadable report cache " + cacheFile + ": " + e.getMessage());
+        entries.clear();
+      }
+    }
+    logger.debug("Loaded " + entries.size() + " entries from report cache " + cacheFile);
+    return new ReportFingerprintCache(cacheFile, outputOfFlakyReportExists, logger, entries);
+  }
+
+  /**
+   * @param reportFile report file
+   * @param fingerprint current fingerprint of the report file
+   * @return the number of flaky tests found in the report the last time it was processed, or {@code
+   *     null} if the report has changed since or needs to be processed again
+   */
+  public Integer lookup(File reportFile, Fingerprint fingerprint) {
+    final String key = reportFile.getAbsolutePath();
+    final Entry entry = previousEntries.get(key);
+    if (entry == null || !entry.fingerprint.equals(fingerprint)) {
+      return null;
+    }
+    if (entry.numberOfFlakes > 0 && !outputOfFlakyReportExists.test(reportFile)) {
+      return null;
+    }
+    currentEntries.put(key, entry);
+    return entry.numberOfFlakes;
+  }
+
+  /**
+   * @param reportFile report file
+   * @param fingerprint fingerprint of the report file when it was processed
+   * @param numberOfFlakes number of flaky tests found in the report
+   */
+  public void update(File reportFile, Fingerprint fingerprint, int numberOfFlakes) {
+    currentEntries.put(reportFile.getAbsolutePath(), new Entry(fingerprint, numberOfFlakes));
+  }
+
+  /** Writes all entries that were looked up or updated since loading to the cache file. */
+  public void save() {
+    try {
+      Files.createDirectories(cacheFile.getAbsoluteFile().getParentFile().toPath());
+      try (BufferedWriter writer = Files.newBufferedWriter(cacheFile.toPath(), UTF_8)) {
+        writer.write(HEADER);
+        writer.newLine();
+        for (Map.Entry<String, Entry> entry : new TreeMap<>(currentEntries).entrySet()) {
+          final Fingerprint fingerprint = entry.getValue().fingerprint;
+          writer.write(
+              fingerprint.size
+                  + "\t"
+                  + fingerprint.lastModified
+                  + "\t"
+                  + fingerprint.contentHash
+                  + "\t"
+                  + entry.getValue().numberOfFlakes
+                  + "\t"
+                  + entry.getKey());
+          writer.newLine();
+        }
+      }
+    } catch (IOException e) {
+      logger.warn("Could not write report cache " + cacheFile + ": " + e.getMessage());
+    }
+  }
+
+  /** Size, modification time and content hash of a report file. */
+  public static final class Fingerprint {
+
+    private final long size;
+
+    private final long lastModified;
+
+    private final String contentHash;
+
+    Fingerprint(long size, long lastModified, String contentHash) {
+      this.size = size;
+      this.lastModified = lastModified;
+      this.contentHash = contentHash;
+    }
+
+    /**
+     * Reads the whole file to compute its content hash.
+     *
+     * @param reportFile report file
+     * @return the fingerprint of the file
+     * @throws IOException if the file cannot be read
+     */
+    public static Fingerprint of(File reportFile) throws IOException {
+      final BasicFileAttributes attributes =
+          Files.readAttributes(reportFile.toPath(), BasicFileAttributes.class);
+
+      final CRC32 checksum = new CRC32();
+      final byte[] buffer = new byte[BUFFER_SIZE];
+      try (InputStream in = Files.newInputStream(reportFile.toPath())) {
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+          checksum.update(buffer, 0, read);
+        }
+      }
+
+      return new Fingerprint(
+          attributes.size(),
+          attributes.lastModifiedTime().toMillis(),
+          Long.toHexString(checksum.getValue()));
+    }
+
+    /** @return size of the report file in bytes */
+    public long getSize() {
+      return size;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      final Fingerprint that = (Fingerprint) o;
+      return size == that.size
+          && lastModified == that.lastModified
+          && contentHash.equals(that.contentHash);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(size, lastModified, contentHash);
+    }
+  }
+
+  private static final class Entry {
+
+    private final Fingerprint fingerprint;
+
+    private final int numberOfFlakes;
+
+    private Entry(Fingerprint fingerprint, int numberOfFlakes) {
+      this.fingerprint = fingerprint;
+      this.numberOfFlakes = numberOfFlakes;
+    }
+  }
+}
@@ -9,6 +9,9 @@ public class ReportTransformer {
       return Optional.empty();
     }
 
+    final TransformEvent event = new TransformEvent();
+    event.begin();
+
     ExtendedReportTestSuite result = new ExtendedReportTestSuite();
 
     result.setName(testSuite.getName());
@@ -35,12 +38,22 @@ public class ReportTransformer {
             .setFailureErrorLine(testCase.getFailureErrorLine())
             .setTime(testCase.getTime())
             .setSystemError(testCase.getSystemError())
-            .setSystemOut(testCase.getSystemOut());
+            .setSystemOut(testCase.getSystemOut())
+            .setFailureDetailRange(testCase.getFailureDetailRange())
+            .setSystemErrorRange(testCase.getSystemErrorRange())
+            .setSystemOutRange(testCase.getSystemOutRange());
 
         result.getTestCases().add(flakyTestCase);
       }
     }
 
+    if (event.shouldCommit()) {
+      event.setTestSuite(testSuite.getFullClassName());
+      event.setTestCases(testSuite.getNumberOfTests());
+      event.setFlakyTestCases(result.getTestCases().size());
+      event.commit();
+    }
+
     return Optional.of(result);
   }
 
@@ -0,0 +1,22 @@
+package io.zeebe.flakytestextractor;
+
+/**
+ * JDK Flight Recorder event for scanning a report directory. This is the version for Java 8, which
+ * records nothing; the multi-release JAR contains the recorded version for Java 11 and later.
+ */
+public class ScanEvent {
+
+  public void begin() {}
+
+  public boolean shouldCommit() {
+    return false;
+  }
+
+  public void commit() {}
+
+  public void setDirectory(String directory) {}
+
+  public void setReportFiles(int reportFiles) {}
+
+  public void setExcludedFiles(int excludedFiles) {}
+}
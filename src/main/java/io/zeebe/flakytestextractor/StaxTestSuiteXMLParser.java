@@ -0,0 +1,187 @@
+package io.zeebe.flakytestextractor;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.util.List;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import org.apache.maven.plugin.logging.Log;
+import org.xml.sax.SAXException;
+
+/**
+ * StAX engine of {@link TestSuiteXMLParser}. It builds the same model as {@link
+ * ExtendedTestSuiteXMLParser}, but pulls the events itself and can therefore skip whole subtrees
+ * without looking at their content:
+ *
+ * <ul>
+ *   <li>{@code properties} of the test suites are never needed
+ *   <li>with {@link #setCaptureOutputOfFlakyTestsOnly(boolean)}, {@code system-out} and {@code
+ *       system-err} of test cases are skipped if the test case has not shown to be flaky when the
+ *       element starts. Surefire writes the {@code flakyFailure} and {@code flakyError} elements
+ *       before any output of the test case, so no output of flaky tests is lost.
+ *   <li>with {@link #setPassthrough(boolean)}, {@code stackTrace}, {@code system-out} and {@code
+ *       system-err} are always skipped
+ * </ul>
+ *
+ * <p>Parsing stops as soon as the report turns out not to be a test report (e.g. a failsafe
+ * summary).
+ */
+public class StaxTestSuiteXMLParser implements TestSuiteXMLParser {
+
+  private final SurefireTimeParser timeParser = new SurefireTimeParser();
+
+  private final XMLInputFactory factory = createInputFactory();
+
+  private final Log logger;
+
+  private boolean captureOutputOfFlakyTestsOnly = false;
+
+  private boolean passthrough = false;
+
+  private int inputBufferSize = DEFAULT_INPUT_BUFFER_SIZE;
+
+  public StaxTestSuiteXMLParser(Log logger) {
+    this.logger = logger;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public StaxTestSuiteXMLParser setCaptureOutputOfFlakyTestsOnly(
+      boolean captureOutputOfFlakyTestsOnly) {
+    this.captureOutputOfFlakyTestsOnly = captureOutputOfFlakyTestsOnly;
+    return this;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public StaxTestSuiteXMLParser setPassthrough(boolean passthrough) {
+    this.passthrough = passthrough;
+    return this;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public StaxTestSuiteXMLParser setInputBufferSize(int inputBufferSize) {
+    this.inputBufferSize = inputBufferSize;
+    return this;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public List<ExtendedReportTestSuite> parse(String xmlPath) throws SAXException, IOException {
+    File f = new File(xmlPath);
+    if (passthrough) {
+      final TestSuiteModelBuilder passthroughModelBuilder = newModelBuilder(true);
+      final List<ExtendedReportTestSuite> testSuites = parse(f, passthroughModelBuilder);
+      if (ReportContentLocator.locate(
+          f,
+          passthroughModelBuilder.getSourceEncoding(),
+          passthroughModelBuilder.getFlakyTestCases())) {
+        return testSuites;
+      }
+      logger.debug("Cannot pass through the content of flaky tests in " + f + ", parsing it again");
+    }
+    return parse(f, newModelBuilder(false));
+  }
+
+  public List<ExtendedReportTestSuite> parse(Reader stream) throws SAXException, IOException {
+    final TestSuiteModelBuilder modelBuilder = newModelBuilder(false);
+    try {
+      return parse(factory.createXMLStreamReader(stream), modelBuilder);
+    } catch (XMLStreamException e) {
+      throw new SAXException(e.getMessage(), e);
+    }
+  }
+
+  private List<ExtendedReportTestSuite> parse(File f, TestSuiteModelBuilder modelBuilder)
+      throws SAXException, IOException {
+    // the parser decodes the bytes itself, in the encoding of the XML declaration
+    try (InputStream stream = new BufferedInputStream(new FileInputStream(f), inputBufferSize)) {
+      return parse(factory.createXMLStreamReader(stream), modelBuilder);
+    } catch (XMLStreamException e) {
+      throw new SAXException(e.getMessage(), e);
+    }
+  }
+
+  private TestSuiteModelBuilder newModelBuilder(boolean passthrough) {
+    return new TestSuiteModelBuilder(
+        logger, timeParser, captureOutputOfFlakyTestsOnly, passthrough);
+  }
+
+  private List<ExtendedReportTestSuite> parse(
+      XMLStreamReader reader, TestSuiteModelBuilder modelBuilder)
+      throws XMLStreamException, SAXException {
+    modelBuilder.setSourceEncoding(reader.getEncoding());
+    try {
+      readEvents(reader, modelBuilder);
+    } finally {
+      closeQuietly(reader);
+    }
+
+    return modelBuilder.getTestSuites();
+  }
+
+  private static void readEvents(XMLStreamReader reader, TestSuiteModelBuilder modelBuilder)
+      throws XMLStreamException, SAXException {
+    while (reader.hasNext() && modelBuilder.isValid()) {
+      switch (reader.next()) {
+        case XMLStreamConstants.START_ELEMENT:
+          final String name = reader.getLocalName();
+          if (modelBuilder.isSkippable(name)) {
+            skipElement(reader);
+          } else {
+            modelBuilder.startElement(name, attribute -> reader.getAttributeValue(null, attribute));
+          }
+          break;
+        case XMLStreamConstants.END_ELEMENT:
+          modelBuilder.endElement(reader.getLocalName());
+          break;
+        case XMLStreamConstants.CHARACTERS:
+        case XMLStreamConstants.CDATA:
+        case XMLStreamConstants.SPACE:
+          modelBuilder.characters(
+              reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+          break;
+        default:
+          break;
+      }
+    }
+  }
+
+  /** Advances the reader to the end of the current element, ignoring all nested events. */
+  private static void skipElement(XMLStreamReader reader) throws XMLStreamException {
+    int depth = 1;
+    while (depth > 0) {
+      final int event = reader.next();
+      if (event == XMLStreamConstants.START_ELEMENT) {
+        depth++;
+      } else if (event == XMLStreamConstants.END_ELEMENT) {
+        depth--;
+      }
+    }
+  }
+
+  private static void closeQuietly(XMLStreamReader reader) {
+    if (reader != null) {
+      try {
+        reader.close();
+      } catch (XMLStreamException e) {
+        // the underlying stream is closed by the caller
+      }
+    }
+  }
+
+  private static XMLInputFactory createInputFactory() {
+    final XMLInputFactory factory = XmlParserFactories.newXMLInputFactory();
+    // element names are matched by their qualified names, like in the SAX engine
+    factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, false);
+    factory.setProperty(XMLInputFactory.IS_COALESCING, false);
+    return factory;
+  }
+}
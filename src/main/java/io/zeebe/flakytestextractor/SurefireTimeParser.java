@@ -0,0 +1,83 @@
+package io.zeebe.flakytestextractor;
+
+import static java.util.Locale.ENGLISH;
+
+import java.text.NumberFormat;
+import java.text.ParseException;
+
+/**
+ * Parses the times of Surefire reports, e.g. {@code 0.012} or {@code 1,234.5}, to the same values
+ * as {@code NumberFormat.getInstance(ENGLISH).parse(text).floatValue()}, but without allocating.
+ *
+ * <p>Only digits with grouping separators, optionally followed by a decimal point and more digits,
+ * are parsed directly, and only as long as the value can be computed exactly: the digits without
+ * the decimal point must fit into the 53 bit mantissa of a double, and the number of fraction
+ * digits must not exceed the largest exact power of ten of a double. The division of both is then
+ * correctly rounded, like the {@link Double#parseDouble(String)} of {@code NumberFormat}. All other
+ * text, e.g. with a sign, an exponent or trailing characters, is parsed by {@code NumberFormat}.
+ *
+ * <p>Instances are not thread-safe, like {@code NumberFormat}.
+ */
+final class SurefireTimeParser {
+
+  /** The powers of ten which are exact doubles */
+  private static final double[] POWERS_OF_TEN = {
+    1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16,
+    1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+  };
+
+  private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+  private final NumberFormat numberFormat = NumberFormat.getInstance(ENGLISH);
+
+  private int fallbacks;
+
+  /**
+   * @param text text of a time attribute or element
+   * @return the time
+   * @throws ParseException if the text does not start with a number
+   * @throws NullPointerException if the text is {@code null}
+   */
+  float parse(CharSequence text) throws ParseException {
+    final int length = text.length();
+    long mantissa = 0;
+    int fractionDigits = 0;
+    boolean sawDigit = false;
+    boolean sawDecimalPoint = false;
+
+    for (int i = 0; i < length; i++) {
+      final char ch = text.charAt(i);
+      if (ch >= '0' && ch <= '9') {
+        mantissa = mantissa * 10 + (ch - '0');
+        if (mantissa > MAX_EXACT_MANTISSA) {
+          return fallBack(text);
+        }
+        if (sawDecimalPoint) {
+          fractionDigits++;
+        }
+        sawDigit = true;
+      } else if (ch == ',' && sawDigit && !sawDecimalPoint) {
+        // grouping separators have no effect on the value in the integer part
+      } else if (ch == '.' && sawDigit && !sawDecimalPoint) {
+        sawDecimalPoint = true;
+      } else {
+        return fallBack(text);
+      }
+    }
+
+    if (!sawDigit || fractionDigits >= POWERS_OF_TEN.length) {
+      return fallBack(text);
+    }
+    return (float) (mantissa / POWERS_OF_TEN[fractionDigits]);
+  }
+
+  /** @return number of texts that were parsed by {@code NumberFormat} */
+  int getFallbacks() {
+    return fallbacks;
+  }
+
+  private float fallBack(CharSequence text) throws ParseException {
+    fallbacks++;
+    return numberFormat.parse(text.toString()).floatValue();
+  }
+}
@@ -0,0 +1,420 @@
+package io.zeebe.flakytestextractor;
+
+import java.io.Closeable;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streaming writer for XML documents in the Surefire report schema. Markup and text are encoded to
+ * UTF-8 straight into a byte buffer, which is passed on to the output stream only when it is full
+ * or the writer is closed. Closed writers return their buffer to a per-thread pool for the next
+ * writer.
+ *
+ * <p>Element text is always written as CDATA. Like Surefire, {@code ]]>} ends the CDATA section,
+ * which is then continued, and characters that are illegal in XML 1.0 are written as {@code
+ * &amp#<code>;}, see SUREFIRE-456. Runs of text without such characters are encoded in bulk,
+ * checking the capacity of the buffer once per run instead of once per character.
+ *
+ * <p>Content that is already encoded, e.g. the output of a test case in the report it was parsed
+ * from, can be copied as is by {@link #copyContent(FileChannel, ByteRange)}.
+ *
+ * <p>In the pretty mode, each element starts on a new line and is indented by two spaces per level,
+ * like the reports written by Surefire. The compact mode writes no whitespace between elements.
+ *
+ * <p>Instances are not thread-safe.
+ */
+public class SurefireXmlWriter implements Closeable {
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private static final ThreadLocal<byte[]> BUFFERS = new ThreadLocal<>();
+
+  private static final String XML_DECLARATION = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>";
+
+  private static final String CDATA_START = "<![CDATA[";
+
+  private static final String CDATA_END = "]]>";
+
+  private static final String CDATA_CONTINUATION = "]]><![CDATA[>";
+
+  private final OutputStream out;
+
+  private final boolean pretty;
+
+  private final String lineSeparator = System.lineSeparator();
+
+  private final List<String> openElements = new ArrayList<>();
+
+  private WritableByteChannel outChannel;
+
+  private byte[] buffer;
+
+  private int position;
+
+  private boolean rootStarted;
+
+  private boolean startTagOpen;
+
+  private boolean elementHasChildren;
+
+  /**
+   * @param out stream to write to; closed when this writer is closed
+   * @param pretty {@code true} to indent the elements, {@code false} for the compact mode
+   */
+  public SurefireXmlWriter(OutputStream out, boolean pretty) {
+    this.out = out;
+    this.pretty = pretty;
+
+    buffer = BUFFERS.get();
+    if (buffer == null) {
+      buffer = new byte[BUFFER_SIZE];
+    } else {
+      BUFFERS.remove();
+    }
+  }
+
+  /**
+   * Starts an element, preceded by the XML declaration for the first element; its attributes are
+   * added by {@link #addAttribute(String, String)} before anything else is written.
+   *
+   * @param name name of the element
+   * @return this writer
+   * @throws IOException if the output stream cannot be written
+   */
+  public SurefireXmlWriter startElement(String name) throws IOException {
+    closeStartTag();
+    if (!rootStarted) {
+      writeAscii(XML_DECLARATION);
+      if (pretty) {
+        writeAscii(lineSeparator);
+      }
+      rootStarted = true;
+    } else if (pretty) {
+      newLine(openElements.size());
+    }
+    ensureCapacity(1 + name.length());
+    buffer[position++] = '<';
+    writeAscii(name);
+    openElements.add(name);
+    startTagOpen = true;
+    elementHasChildren = false;
+    return this;
+  }
+
+  /**
+   * Adds an attribute to the element that was started last. Markup characters and line breaks in
+   * the value are escaped like Surefire does, which writes CR LF as {@code &#10;}.
+   *
+   * @param name name of the attribute
+   * @param value value of the attribute
+   * @return this writer
+   * @throws IOException if the output stream cannot be written
+   */
+  public SurefireXmlWriter addAttribute(String name, String value) throws IOException {
+    if (!startTagOpen) {
+      throw new IllegalStateException("Attribute '" + name + "' is not inside a start tag");
+    }
+    ensureCapacity(3 + name.length());
+    buffer[position++] = ' ';
+    writeAscii(name);
+    buffer[position++] = '=';
+    buffer[position++] = '"';
+    writeAttributeValue(value);
+    ensureCapacity(1);
+    buffer[position++] = '"';
+    return this;
+  }
+
+  /**
+   * Writes the text of the element that was started last as CDATA.
+   *
+   * @param text the text
+   * @return this writer
+   * @throws IOException if the output stream cannot be written
+   */
+  public SurefireXmlWriter writeCdata(String text) throws IOException {
+    closeStartTag();
+    writeAscii(CDATA_START);
+    writeCdataContent(text);
+    writeAscii(CDATA_END);
+    elementHasChildren = false;
+    return this;
+  }
+
+  /**
+   * Copies content of the element that was started last from a file, bypassing the buffer. The
+   * content must be well-formed and UTF-8 encoded; it is written as it is.
+   *
+   * @param source file to copy from
+   * @param range range of the content in the file
+   * @return this writer
+   * @throws IOException if the file cannot be read or the output stream cannot be written
+   */
+  public SurefireXmlWriter copyContent(FileChannel source, ByteRange range) throws IOException {
+    closeStartTag();
+    flushBuffer();
+    if (outChannel == null) {
+      outChannel =
+          out instanceof FileOutputStream
+              ? ((FileOutputStream) out).getChannel()
+              : Channels.newChannel(out);
+    }
+
+    long position = range.getPosition();
+    final long end = position + range.getLength();
+    while (position < end) {
+      final long transferred = source.transferTo(position, end - position, outChannel);
+      if (transferred <= 0) {
+        throw new IOException(
+            "Cannot copy " + range + " from report file, which ends at " + source.size());
+      }
+      position += transferred;
+    }
+    elementHasChildren = false;
+    return this;
+  }
+
+  /**
+   * Ends the element that was started last.
+   *
+   * @return this writer
+   * @throws IOException if the output stream cannot be written
+   */
+  public SurefireXmlWriter endElement() throws IOException {
+    final String name = openElements.remove(openElements.size() - 1);
+    if (startTagOpen) {
+      writeAscii("/>");
+      startTagOpen = false;
+    } else {
+      if (pretty && elementHasChildren) {
+        newLine(openElements.size());
+      }
+      writeAscii("</");
+      writeAscii(name);
+      writeAscii(">");
+    }
+    elementHasChildren = true;
+    return this;
+  }
+
+  /**
+   * Writes the buffered output to the stream and closes it. Elements that are still open are not
+   * ended.
+   *
+   * @throws IOException if the output stream cannot be written or closed
+   */
+  @Override
+  public void close() throws IOException {
+    if (buffer == null) {
+      return;
+    }
+    try {
+      flushBuffer();
+    } finally {
+      BUFFERS.set(buffer);
+      buffer = null;
+      out.close();
+    }
+  }
+
+  private void closeStartTag() throws IOException {
+    if (startTagOpen) {
+      ensureCapacity(1);
+      buffer[position++] = '>';
+      startTagOpen = false;
+    }
+  }
+
+  private void newLine(int depth) throws IOException {
+    writeAscii(lineSeparator);
+    for (int i = 0; i < depth; i++) {
+      writeAscii("  ");
+    }
+  }
+
+  private void writeAttributeValue(String value) throws IOException {
+    final int length = value.length();
+    for (int i = 0; i < length; i++) {
+      final char c = value.charAt(i);
+      switch (c) {
+        case '&':
+          writeAscii("&amp;");
+          break;
+        case '<':
+          writeAscii("&lt;");
+          break;
+        case '>':
+          writeAscii("&gt;");
+          break;
+        case '"':
+          writeAscii("&quot;");
+          break;
+        case '\'':
+          writeAscii("&apos;");
+          break;
+        case '\r':
+          // like Surefire, a line break of CR LF is written as a single LF
+          if (i + 1 == length || value.charAt(i + 1) != '\n') {
+            writeAscii("&#13;");
+          }
+          break;
+        case '\n':
+          writeAscii("&#10;");
+          break;
+        default:
+          i = writeChar(value, i, c);
+          break;
+      }
+    }
+  }
+
+  private void writeCdataContent(String text) throws IOException {
+    final int length = text.length();
+    int index = 0;
+    while (index < length) {
+      // a character takes at most three bytes, a surrogate pair four bytes for two characters
+      final int end = Math.min(length, index + (buffer.length - position - 1) / 3);
+      if (end == index) {
+        flushBuffer();
+        continue;
+      }
+      index = encodeCdataRun(text, index, end);
+      if (index < end) {
+        final char c = text.charAt(index);
+        if (c == '>') {
+          writeAscii(CDATA_CONTINUATION);
+        } else {
+          writeIllegalCharacter(c);
+        }
+        index++;
+      }
+    }
+  }
+
+  /**
+   * Encodes the text from the start index as UTF-8 into the buffer, until the end index or the
+   * first character that must be escaped in CDATA. The buffer must have room for three bytes per
+   * character plus one.
+   *
+   * @return the index of the character that must be escaped, or the end index or the one after it
+   *     if the run ended with a surrogate pair
+   */
+  private int encodeCdataRun(String text, int start, int end) {
+    final byte[] buf = buffer;
+    int pos = position;
+    int index = start;
+    for (; index < end; index++) {
+      final char c = text.charAt(index);
+      if (c < 0x80) {
+        if (c < 32 ? isIllegalXml10(c) : c == '>' && endsCdata(text, index)) {
+          break;
+        }
+        buf[pos++] = (byte) c;
+      } else if (c < 0x800) {
+        buf[pos++] = (byte) (0xc0 | (c >> 6));
+        buf[pos++] = (byte) (0x80 | (c & 0x3f));
+      } else if (Character.isSurrogate(c)) {
+        final char low = index + 1 < text.length() ? text.charAt(index + 1) : 0;
+        if (Character.isHighSurrogate(c) && Character.isLowSurrogate(low)) {
+          final int codePoint = Character.toCodePoint(c, low);
+          buf[pos++] = (byte) (0xf0 | (codePoint >> 18));
+          buf[pos++] = (byte) (0x80 | ((codePoint >> 12) & 0x3f));
+          buf[pos++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+          buf[pos++] = (byte) (0x80 | (codePoint & 0x3f));
+          index++;
+        } else {
+          buf[pos++] = '?';
+        }
+      } else {
+        buf[pos++] = (byte) (0xe0 | (c >> 12));
+        buf[pos++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+        buf[pos++] = (byte) (0x80 | (c & 0x3f));
+      }
+    }
+    position = pos;
+    return index;
+  }
+
+  private static boolean endsCdata(String text, int index) {
+    return index >= 2 && text.charAt(index - 1) == ']' && text.charAt(index - 2) == ']';
+  }
+
+  private void writeIllegalCharacter(char c) throws IOException {
+    // SUREFIRE-456: the character is deliberately doubly escaped, there's nothing better we can do
+    ensureCapacity(8);
+    writeAscii("&amp#");
+    if (c >= 10) {
+      buffer[position++] = (byte) ('0' + c / 10);
+    }
+    buffer[position++] = (byte) ('0' + c % 10);
+    buffer[position++] = ';';
+  }
+
+  /**
+   * Encodes a character as UTF-8. Unpaired surrogates are replaced by {@code ?} like {@link
+   * String#getBytes} does.
+   *
+   * @return the index of the last character that was written, which is the index of the low
+   *     surrogate for a surrogate pair
+   */
+  private int writeChar(String text, int index, char c) throws IOException {
+    ensureCapacity(4);
+    if (c < 0x80) {
+      buffer[position++] = (byte) c;
+    } else if (c < 0x800) {
+      buffer[position++] = (byte) (0xc0 | (c >> 6));
+      buffer[position++] = (byte) (0x80 | (c & 0x3f));
+    } else if (Character.isSurrogate(c)) {
+      final char low = index + 1 < text.length() ? text.charAt(index + 1) : 0;
+      if (Character.isHighSurrogate(c) && Character.isLowSurrogate(low)) {
+        final int codePoint = Character.toCodePoint(c, low);
+        buffer[position++] = (byte) (0xf0 | (codePoint >> 18));
+        buffer[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3f));
+        buffer[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+        buffer[position++] = (byte) (0x80 | (codePoint & 0x3f));
+        return index + 1;
+      }
+      buffer[position++] = '?';
+    } else {
+      buffer[position++] = (byte) (0xe0 | (c >> 12));
+      buffer[position++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+      buffer[position++] = (byte) (0x80 | (c & 0x3f));
+    }
+    return index;
+  }
+
+  /** Writes markup, which consists of ASCII characters only. */
+  private void writeAscii(String markup) throws IOException {
+    final int length = markup.length();
+    for (int i = 0; i < length; ) {
+      if (position == buffer.length) {
+        flushBuffer();
+      }
+      final int chunk = Math.min(length - i, buffer.length - position);
+      for (int j = 0; j < chunk; j++) {
+        buffer[position++] = (byte) markup.charAt(i++);
+      }
+    }
+  }
+
+  private void ensureCapacity(int bytes) throws IOException {
+    if (position + bytes > buffer.length) {
+      flushBuffer();
+    }
+  }
+
+  private void flushBuffer() throws IOException {
+    out.write(buffer, 0, position);
+    position = 0;
+  }
+
+  private static boolean isIllegalXml10(char c) {
+    return c < 32 && c != '\n' && c != '\r' && c != '\t';
+  }
+}
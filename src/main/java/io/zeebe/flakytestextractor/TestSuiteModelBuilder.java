@@ -0,0 +1,473 @@
+package io.zeebe.flakytestextractor;
+
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.surefire.shared.utils.StringUtils;
+import org.xml.sax.SAXException;
+
+/**
+ * Based on {@code org.apache.maven.plugins.surefire.report.TestSuiteXmlParser} (licensed under
+ * http://www.apache.org/licenses/LICENSE-2.0).
+ *
+ * <p>Builds the test suites of a single report from element and text events. It holds the
+ * interpretation of the Surefire report schema, so that all {@link TestSuiteXMLParser} engines
+ * produce the same model; the engines only translate their parser's events into calls of this
+ * class.
+ *
+ * <p>If only the output of flaky tests is captured, the text of stack traces and system output is
+ * not kept for test cases that have not shown to be flaky when the element starts, like engines
+ * skip such elements by {@link #isSkippable(String)}.
+ *
+ * <p>In the passthrough mode, the text of stack traces and system output is not kept at all. The
+ * flaky test cases are collected in document order instead, so that {@link ReportContentLocator}
+ * can find their content in the report file.
+ */
+final class TestSuiteModelBuilder {
+
+  private final Log logger;
+
+  private final SurefireTimeParser timeParser;
+
+  private final boolean captureOutputOfFlakyTestsOnly;
+
+  private final boolean passthrough;
+
+  private final List<ExtendedReportTestCase> flakyTestCases = new ArrayList<>();
+
+  private final Map<String, Integer> classesToSuitesIndex = new HashMap<>();
+
+  private final List<ExtendedReportTestSuite> suites = new ArrayList<>();
+
+  private final StringBuilder currentElement = new StringBuilder();
+
+  private final CapturedText capturedFailureDetail = new CapturedText();
+
+  private final CapturedText capturedSystemOut = new CapturedText();
+
+  private final CapturedText capturedSystemErr = new CapturedText();
+
+  private ExtendedReportTestSuite defaultSuite;
+
+  private ExtendedReportTestSuite currentSuite;
+
+  private ExtendedReportTestCase testCase;
+
+  private boolean valid = true;
+
+  private boolean skippingText;
+
+  private String sourceEncoding;
+
+  private long retainedCharacters;
+
+  TestSuiteModelBuilder(
+      Log logger,
+      SurefireTimeParser timeParser,
+      boolean captureOutputOfFlakyTestsOnly,
+      boolean passthrough) {
+    this.logger = logger;
+    this.timeParser = timeParser;
+    this.captureOutputOfFlakyTestsOnly = captureOutputOfFlakyTestsOnly;
+    this.passthrough = passthrough;
+  }
+
+  /**
+   * @param qName name of the element
+   * @param attributes lookup of the element's attribute values by name
+   * @throws SAXException if an attribute value cannot be parsed
+   */
+  void startElement(String qName, Function<String, String> attributes) throws SAXException {
+    if (valid) {
+      try {
+        switch (qName) {
+          case "testsuite":
+            defaultSuite = new ExtendedReportTestSuite();
+            currentSuite = defaultSuite;
+
+            try {
+              float time = timeParser.parse(attributes.apply("time"));
+
+              defaultSuite.setTimeElapsed(time);
+            } catch (NullPointerException e) {
+              logger.error("WARNING: no time attribute found on testsuite element");
+            }
+
+            final String name = attributes.apply("name");
+            final String group = attributes.apply("group");
+            defaultSuite.setFullClassName(
+                StringUtils.isBlank(group)
+                    ? /* name is full class name */ name
+                    : /* group is package name */ group + "." + name);
+
+            suites.add(defaultSuite);
+            classesToSuitesIndex.put(defaultSuite.getFullClassName(), suites.size() - 1);
+            break;
+          case "testcase":
+            currentElement.setLength(0);
+            capturedFailureDetail.discard();
+            capturedSystemOut.discard();
+            capturedSystemErr.discard();
+
+            testCase = new ExtendedReportTestCase().setName(attributes.apply("name"));
+
+            String fullClassName = attributes.apply("classname");
+
+            // if the testcase declares its own classname, it may need to belong to its own
+            // suite
+            if (fullClassName != null) {
+              Integer currentSuiteIndex = classesToSuitesIndex.get(fullClassName);
+              if (currentSuiteIndex == null) {
+                currentSuite = new ExtendedReportTestSuite().setFullClassName(fullClassName);
+                suites.add(currentSuite);
+                classesToSuitesIndex.put(fullClassName, suites.size() - 1);
+              } else {
+                currentSuite = suites.get(currentSuiteIndex);
+              }
+            }
+
+            String timeAsString = attributes.apply("time");
+            float time = StringUtils.isBlank(timeAsString) ? 0 : timeParser.parse(timeAsString);
+
+            testCase
+                .setFullClassName(currentSuite.getFullClassName())
+                .setClassName(currentSuite.getName())
+                .setFullName(currentSuite.getFullClassName() + "." + testCase.getName())
+                .setTime(time);
+
+            if (currentSuite != defaultSuite) {
+              currentSuite.setTimeElapsed(testCase.getTime() + currentSuite.getTimeElapsed());
+            }
+            break;
+          case "failure":
+            testCase
+                .setFailureMessage(attributes.apply("message"))
+                .setFailureType(attributes.apply("type"));
+            currentSuite.incrementNumberOfFailures();
+            skippingText = !isCapturingOutputOfCurrentTestCase();
+            break;
+          case "error":
+            testCase
+                .setFailureMessage(attributes.apply("message"))
+                .setFailureType(attributes.apply("type"));
+            currentSuite.incrementNumberOfErrors();
+            skippingText = !isCapturingOutputOfCurrentTestCase();
+            break;
+          case "skipped":
+            String message = attributes.apply("message");
+            testCase.setSkipped(message != null ? message : "skipped");
+            currentSuite.incrementNumberOfSkipped();
+            break;
+          case "flakyFailure":
+          case "flakyError":
+            testCase.setFlake();
+            testCase
+                .setFailureMessage(attributes.apply("message"))
+                .setFailureType(attributes.apply("type"));
+            currentSuite.incrementNumberOfFlakes();
+            break;
+          case "failsafe-summary":
+            valid = false;
+            break;
+          case "system-out":
+          case "system-err":
+          case "stackTrace":
+            {
+              currentElement.setLength(0);
+              skippingText = !isCapturingOutputOfCurrentTestCase();
+              break;
+            }
+          default:
+            break;
+        }
+      } catch (ParseException e) {
+        throw new SAXException(e.getMessage(), e);
+      }
+    }
+  }
+
+  /**
+   * @param qName name of the element
+   * @throws SAXException if the text content of the element cannot be parsed
+   */
+  void endElement(String qName) throws SAXException {
+    if (passthrough) {
+      endElementInPassthroughMode(qName);
+      return;
+    }
+    switch (qName) {
+      case "testcase":
+        if (captureOutputOfFlakyTestsOnly) {
+          applyCapturedText();
+        }
+        currentSuite.getTestCases().add(testCase);
+        break;
+      case "stackTrace":
+      case "failure":
+      case "error":
+        if (skippingText) {
+          // the test case has not shown to be flaky, its text was not kept
+          skippingText = false;
+        } else if (captureOutputOfFlakyTestsOnly) {
+          capturedFailureDetail.capture(currentElement);
+        } else {
+          testCase
+              .setFailureDetail(currentElement.toString())
+              .setFailureErrorLine(parseErrorLine(currentElement, testCase.getFullClassName()));
+        }
+        break;
+      case "system-out":
+        if (skippingText) {
+          skippingText = false;
+        } else if (captureOutputOfFlakyTestsOnly) {
+          capturedSystemOut.capture(currentElement);
+        } else {
+          testCase.setSystemOut(currentElement.toString());
+        }
+        break;
+      case "system-err":
+        if (skippingText) {
+          skippingText = false;
+        } else if (captureOutputOfFlakyTestsOnly) {
+          capturedSystemErr.capture(currentElement);
+        } else {
+          testCase.setSystemError(currentElement.toString());
+        }
+        break;
+      default:
+        endOtherElement(qName);
+        break;
+    }
+    // TODO extract real skipped reasons
+  }
+
+  private void endElementInPassthroughMode(String qName) throws SAXException {
+    switch (qName) {
+      case "testcase":
+        currentSuite.getTestCases().add(testCase);
+        if (testCase.isFlake()) {
+          flakyTestCases.add(testCase);
+        }
+        break;
+      case "stackTrace":
+      case "failure":
+      case "error":
+      case "system-out":
+      case "system-err":
+        // the content is located in the report file later
+        skippingText = false;
+        break;
+      default:
+        endOtherElement(qName);
+        break;
+    }
+  }
+
+  private void endOtherElement(String qName) throws SAXException {
+    if ("time".equals(qName)) {
+      try {
+        defaultSuite.setTimeElapsed(timeParser.parse(currentElement));
+      } catch (ParseException e) {
+        throw new SAXException(e.getMessage(), e);
+      }
+    }
+  }
+
+  void characters(char[] ch, int start, int length) {
+    assert start >= 0;
+    assert length >= 0;
+    if (valid && !skippingText && isNotBlank(start, length, ch)) {
+      currentElement.append(ch, start, length);
+      retainedCharacters += length;
+    }
+  }
+
+  boolean isValid() {
+    return valid;
+  }
+
+  /**
+   * @return number of characters of element text that were kept, i.e. not skipped because the text
+   *     is passed through or belongs to a test case whose output is not captured
+   */
+  long getRetainedCharacters() {
+    return retainedCharacters;
+  }
+
+  /** @param sourceEncoding encoding the parser decodes the report in, as named by the parser */
+  void setSourceEncoding(String sourceEncoding) {
+    this.sourceEncoding = sourceEncoding;
+  }
+
+  /** @return encoding the parser decoded the report in, {@code null} if unknown */
+  String getSourceEncoding() {
+    return sourceEncoding;
+  }
+
+  /**
+   * @return the flaky test cases in document order, in the passthrough mode; their failure detail
+   *     and output are located in the report file by {@link ReportContentLocator}
+   */
+  List<ExtendedReportTestCase> getFlakyTestCases() {
+    return flakyTestCases;
+  }
+
+  /**
+   * @return {@code false} if output that belongs to the current test case would be discarded
+   *     anyway, because it is passed through, or because only the output of flaky tests is captured
+   *     and the test case has not shown to be flaky so far
+   */
+  boolean isCapturingOutputOfCurrentTestCase() {
+    return !passthrough
+        && (!captureOutputOfFlakyTestsOnly || testCase == null || testCase.isFlake());
+  }
+
+  /**
+   * @param qName name of an element that starts
+   * @return {@code true} if the element and its content do not change the model, so that engines
+   *     which can skip a subtree need not pass its events to this builder
+   */
+  boolean isSkippable(String qName) {
+    switch (qName) {
+      case "properties":
+        return true;
+      case "system-out":
+      case "system-err":
+        return !isCapturingOutputOfCurrentTestCase();
+      case "stackTrace":
+        return isPassingContentThrough();
+      default:
+        return false;
+    }
+  }
+
+  /** @return {@code true} if the text of stack traces and output is not needed at all */
+  boolean isPassingContentThrough() {
+    return passthrough;
+  }
+
+  /** @return the test suites of the report, once all events have been passed to this builder */
+  List<ExtendedReportTestSuite> getTestSuites() {
+    if (currentSuite
+        != defaultSuite) { // omit the defaultSuite if it's empty and there are alternatives
+      if (defaultSuite.getNumberOfTests() == 0) {
+        suites.remove(classesToSuitesIndex.get(defaultSuite.getFullClassName()).intValue());
+      }
+    }
+
+    return suites;
+  }
+
+  /**
+   * Hands the text captured for the current test case over to the test case if it is flaky. The
+   * buffers are recycled for the next test case either way.
+   */
+  private void applyCapturedText() {
+    if (testCase.isFlake()) {
+      if (capturedFailureDetail.isCaptured()) {
+        testCase
+            .setFailureDetail(capturedFailureDetail.toString())
+            .setFailureErrorLine(
+                parseErrorLine(capturedFailureDetail.text, testCase.getFullClassName()));
+      }
+      if (capturedSystemOut.isCaptured()) {
+        testCase.setSystemOut(capturedSystemOut.toString());
+      }
+      if (capturedSystemErr.isCaptured()) {
+        testCase.setSystemError(capturedSystemErr.toString());
+      }
+    }
+    capturedFailureDetail.discard();
+    capturedSystemOut.discard();
+    capturedSystemErr.discard();
+  }
+
+  static boolean isNotBlank(int from, int len, char... s) {
+    assert from >= 0;
+    assert len >= 0;
+    if (s != null) {
+      for (int i = 0; i < len; i++) {
+        char c = s[from++];
+        if (c != ' ' && c != '\t' && c != '\n' && c != '\r' && c != '\f') {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  static boolean isNumeric(StringBuilder s, final int from, final int to) {
+    assert from >= 0;
+    assert from <= to;
+    for (int i = from; i != to; ) {
+      if (!Character.isDigit(s.charAt(i++))) {
+        return false;
+      }
+    }
+    return from != to;
+  }
+
+  static String parseErrorLine(StringBuilder currentElement, String fullClassName) {
+    final String[] linePatterns = {"at " + fullClassName + '.', "at " + fullClassName + '$'};
+    int[] indexes = lastIndexOf(currentElement, linePatterns);
+    int patternStartsAt = indexes[0];
+    if (patternStartsAt != -1) {
+      int searchFrom = patternStartsAt + (linePatterns[indexes[1]]).length();
+      searchFrom = 1 + currentElement.indexOf(":", searchFrom);
+      int searchTo = currentElement.indexOf(")", searchFrom);
+      return isNumeric(currentElement, searchFrom, searchTo)
+          ? currentElement.substring(searchFrom, searchTo)
+          : "";
+    }
+    return "";
+  }
+
+  static int[] lastIndexOf(StringBuilder source, String... linePatterns) {
+    int end = source.indexOf("Caused by:");
+    if (end == -1) {
+      end = source.length();
+    }
+    int startsAt = -1;
+    int pattern = -1;
+    for (int i = 0; i < linePatterns.length; i++) {
+      String linePattern = linePatterns[i];
+      int currentStartsAt = source.lastIndexOf(linePattern, end);
+      if (currentStartsAt > startsAt) {
+        startsAt = currentStartsAt;
+        pattern = i;
+      }
+    }
+    return new int[] {startsAt, pattern};
+  }
+
+  /** Reusable buffer for text whose fate is only decided at the end of a test case. */
+  private static final class CapturedText {
+    private final StringBuilder text = new StringBuilder();
+
+    private boolean captured;
+
+    void capture(CharSequence value) {
+      text.setLength(0);
+      text.append(value);
+      captured = true;
+    }
+
+    boolean isCaptured() {
+      return captured;
+    }
+
+    void discard() {
+      text.setLength(0);
+      captured = false;
+    }
+
+    @Override
+    public String toString() {
+      return text.toString();
+    }
+  }
+}
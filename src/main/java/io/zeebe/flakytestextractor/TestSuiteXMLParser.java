@@ -0,0 +1,58 @@
+package io.zeebe.flakytestextractor;
+
+import java.io.IOException;
+import java.util.List;
+import javax.xml.parsers.ParserConfigurationException;
+import org.xml.sax.SAXException;
+
+/**
+ * Parser for a single Surefire XML report. Implementations keep per-parse state and must not be
+ * shared between threads.
+ *
+ * @see ParserEngine
+ */
+public interface TestSuiteXMLParser {
+
+  /** Default size of the buffer that report files are read through, in bytes */
+  int DEFAULT_INPUT_BUFFER_SIZE = 64 * 1024;
+
+  /**
+   * Enables selective capture. In this mode, stack traces and system output are only kept for test
+   * cases that turn out to be flaky. For all other test cases the captured text is discarded when
+   * the test case ends, without ever being turned into a {@code String}.
+   *
+   * @param captureOutputOfFlakyTestsOnly {@code true} to only keep the output of flaky tests
+   * @return this parser
+   */
+  TestSuiteXMLParser setCaptureOutputOfFlakyTestsOnly(boolean captureOutputOfFlakyTestsOnly);
+
+  /**
+   * Enables the passthrough mode. In this mode, stack traces and system output are not read at all.
+   * Instead, flaky test cases get the byte ranges of this content in the report file, see {@link
+   * ExtendedReportTestCase#getFailureDetailRange()}, so that it can be copied from there. If the
+   * content of a report cannot be located, the report is parsed again without this mode.
+   *
+   * @param passthrough {@code true} to locate the content of flaky tests instead of reading it
+   * @return this parser
+   */
+  TestSuiteXMLParser setPassthrough(boolean passthrough);
+
+  /**
+   * Report files are passed to the underlying parser as bytes, so that it decodes them according to
+   * their XML declaration. This sets the size of the buffer they are read through.
+   *
+   * @param inputBufferSize size of the input buffer in bytes, must be positive
+   * @return this parser
+   */
+  TestSuiteXMLParser setInputBufferSize(int inputBufferSize);
+
+  /**
+   * @param xmlPath path of the report file
+   * @return the test suites contained in the report
+   * @throws ParserConfigurationException if the underlying parser cannot be created
+   * @throws SAXException if the report is not well-formed or contains invalid values
+   * @throws IOException if the report cannot be read
+   */
+  List<ExtendedReportTestSuite> parse(String xmlPath)
+      throws ParserConfigurationException, SAXException, IOException;
+}
@@ -0,0 +1,874 @@
+package io.zeebe.flakytestextractor;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import javax.xml.parsers.ParserConfigurationException;
+import org.apache.maven.plugin.logging.Log;
+import org.xml.sax.SAXException;
+
+/**
+ * Tokenizer engine of {@link TestSuiteXMLParser}. It builds the same model as {@link
+ * ExtendedTestSuiteXMLParser}, but tokenizes the bytes of the report file itself instead of using a
+ * general-purpose XML parser:
+ *
+ * <ul>
+ *   <li>the element names of the Surefire schema are matched without creating strings for them
+ *   <li>attribute values are only decoded if the model needs them
+ *   <li>the same subtrees as in {@link StaxTestSuiteXMLParser} are skipped; their content is only
+ *       checked to be well-formed, but not decoded
+ * </ul>
+ *
+ * <p>The tokenizer supports the subset of XML that Surefire writes. Reports that are not
+ * well-formed and reports with other constructs are parsed by the SAX engine instead, so that the
+ * result and the errors are always those of the SAX engine. Constructs outside of the subset are
+ * document type declarations, XML 1.1, encodings other than UTF-8, element and attribute names with
+ * characters other than ASCII, and text that is not in a CDATA section and contains line breaks,
+ * tabs or characters other than ASCII, because SAX parsers report such text in parts that depend on
+ * these characters.
+ *
+ * <p>Like the StAX engine, the tokenizer stops as soon as the report turns out not to be a test
+ * report (e.g. a failsafe summary).
+ */
+public class TokenizerTestSuiteXMLParser implements TestSuiteXMLParser {
+
+  /** Names that are matched without creating a string, see {@link #elementName(int, int)} */
+  private static final String[] ELEMENT_NAMES = {
+    "testsuite",
+    "testcase",
+    "properties",
+    "property",
+    "failure",
+    "error",
+    "skipped",
+    "flakyFailure",
+    "flakyError",
+    "rerunFailure",
+    "rerunError",
+    "stackTrace",
+    "system-out",
+    "system-err",
+    "testsuites",
+    "failsafe-summary"
+  };
+
+  private static final byte[][] ELEMENT_NAME_BYTES = toBytes(ELEMENT_NAMES);
+
+  private static final byte[] BYTE_ORDER_MARK = {(byte) 0xef, (byte) 0xbb, (byte) 0xbf};
+
+  private static final byte[] XML_DECLARATION_START = "<?xml".getBytes(US_ASCII);
+
+  private static final byte[] COMMENT_START = "<!--".getBytes(US_ASCII);
+
+  private static final byte[] COMMENT_END = "-->".getBytes(US_ASCII);
+
+  private static final byte[] CDATA_START = "<![CDATA[".getBytes(US_ASCII);
+
+  private static final byte[] CDATA_END = "]]>".getBytes(US_ASCII);
+
+  private static final byte[] PROCESSING_INSTRUCTION_END = "?>".getBytes(US_ASCII);
+
+  private final SurefireTimeParser timeParser = new SurefireTimeParser();
+
+  private final Log logger;
+
+  private boolean captureOutputOfFlakyTestsOnly = false;
+
+  private boolean passthrough = false;
+
+  private int inputBufferSize = DEFAULT_INPUT_BUFFER_SIZE;
+
+  private ExtendedTestSuiteXMLParser fallbackParser;
+
+  private int fallbacks;
+
+  /** Reused for the decoded text of all files parsed by this instance */
+  private char[] text = new char[1024];
+
+  // state of the current file, reset for each file
+
+  private byte[] report;
+
+  private int position;
+
+  private TestSuiteModelBuilder modelBuilder;
+
+  /** Start and length of the names of the open elements */
+  private int[] openElements = new int[32];
+
+  private int depth;
+
+  /** Depth of the element whose subtree is skipped, 0 if nothing is skipped */
+  private int skippedDepth;
+
+  /** Start, length, value start, value end and decoding flag of the attributes of a start tag */
+  private int[] attributes = new int[5 * 8];
+
+  private int attributeCount;
+
+  private int referenceEnd;
+
+  public TokenizerTestSuiteXMLParser(Log logger) {
+    this.logger = logger;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public TokenizerTestSuiteXMLParser setCaptureOutputOfFlakyTestsOnly(
+      boolean captureOutputOfFlakyTestsOnly) {
+    this.captureOutputOfFlakyTestsOnly = captureOutputOfFlakyTestsOnly;
+    return this;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public TokenizerTestSuiteXMLParser setPassthrough(boolean passthrough) {
+    this.passthrough = passthrough;
+    return this;
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>The tokenizer reads each report at once, so the size only applies to the reports that are
+   * parsed by the SAX engine.
+   */
+  @Override
+  public TokenizerTestSuiteXMLParser setInputBufferSize(int inputBufferSize) {
+    this.inputBufferSize = inputBufferSize;
+    return this;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public List<ExtendedReportTestSuite> parse(String xmlPath)
+      throws ParserConfigurationException, SAXException, IOException {
+    final File f = new File(xmlPath);
+    try {
+      final byte[] bytes = Files.readAllBytes(f.toPath());
+      if (passthrough) {
+        final TestSuiteModelBuilder passthroughModelBuilder = newModelBuilder(true);
+        final List<ExtendedReportTestSuite> testSuites = parse(bytes, passthroughModelBuilder);
+        if (ReportContentLocator.locate(
+            f,
+            passthroughModelBuilder.getSourceEncoding(),
+            passthroughModelBuilder.getFlakyTestCases())) {
+          return testSuites;
+        }
+        logger.debug(
+            "Cannot pass through the content of flaky tests in " + f + ", parsing it again");
+      }
+      return parse(bytes, newModelBuilder(false));
+    } catch (UnsupportedContentException | SAXException e) {
+      logger.debug("Parsing " + f + " with the SAX engine: " + e.getMessage());
+      fallbacks++;
+      return getFallbackParser().parse(xmlPath);
+    }
+  }
+
+  /** @return number of files that were parsed by the SAX engine instead */
+  public int getFallbacks() {
+    return fallbacks;
+  }
+
+  private ExtendedTestSuiteXMLParser getFallbackParser() {
+    if (fallbackParser == null) {
+      fallbackParser = new ExtendedTestSuiteXMLParser(logger);
+    }
+    return fallbackParser
+        .setCaptureOutputOfFlakyTestsOnly(captureOutputOfFlakyTestsOnly)
+        .setPassthrough(passthrough)
+        .setInputBufferSize(inputBufferSize);
+  }
+
+  private TestSuiteModelBuilder newModelBuilder(boolean passthrough) {
+    return new TestSuiteModelBuilder(
+        logger, timeParser, captureOutputOfFlakyTestsOnly, passthrough);
+  }
+
+  private List<ExtendedReportTestSuite> parse(byte[] bytes, TestSuiteModelBuilder modelBuilder)
+      throws SAXException {
+    this.report = bytes;
+    this.modelBuilder = modelBuilder;
+    // reports declared in other encodings are parsed by the SAX engine
+    modelBuilder.setSourceEncoding(UTF_8.name());
+    position = 0;
+    depth = 0;
+    skippedDepth = 0;
+    try {
+      readProlog();
+      readRootElement();
+      if (modelBuilder.isValid()) {
+        skipMisc();
+        if (position != report.length) {
+          throw unsupported("content after the root element");
+        }
+      }
+      return modelBuilder.getTestSuites();
+    } finally {
+      // drop all references to the parsed report so that it can be garbage collected
+      this.report = null;
+      this.modelBuilder = null;
+    }
+  }
+
+  private void readProlog() {
+    if (startsWith(BYTE_ORDER_MARK)) {
+      position += BYTE_ORDER_MARK.length;
+    }
+    if (startsWith(XML_DECLARATION_START)
+        && isWhitespace(byteAt(position + XML_DECLARATION_START.length))) {
+      position += XML_DECLARATION_START.length;
+      readXmlDeclaration();
+    }
+    skipMisc();
+    if (byteAt(position) != '<' || byteAt(position + 1) == '!') {
+      throw unsupported("document type declaration or content before the root element");
+    }
+  }
+
+  private void readXmlDeclaration() {
+    readAttributes();
+    expect(PROCESSING_INSTRUCTION_END);
+    if (attributeCount == 0 || !isAttribute(0, "version") || !attributeValueEquals(0, "1.0")) {
+      throw unsupported("XML version other than 1.0");
+    }
+    int next = 1;
+    if (next < attributeCount && isAttribute(next, "encoding")) {
+      if (!attributeValueEquals(next, "UTF-8") && !attributeValueEquals(next, "utf-8")) {
+        throw unsupported("encoding other than UTF-8");
+      }
+      next++;
+    }
+    if (next < attributeCount
+        && isAttribute(next, "standalone")
+        && (attributeValueEquals(next, "yes") || attributeValueEquals(next, "no"))) {
+      next++;
+    }
+    if (next != attributeCount) {
+      throw unsupported("invalid XML declaration");
+    }
+  }
+
+  /** Skips whitespace, comments and processing instructions outside of the root element. */
+  private void skipMisc() {
+    while (true) {
+      skipWhitespace();
+      if (startsWith(COMMENT_START)) {
+        skipComment();
+      } else if (byteAt(position) == '<' && byteAt(position + 1) == '?') {
+        skipProcessingInstruction();
+      } else {
+        return;
+      }
+    }
+  }
+
+  private void readRootElement() throws SAXException {
+    do {
+      if (position == report.length) {
+        throw unsupported("unexpected end of the report");
+      }
+      final byte b = report[position];
+      if (b == '<') {
+        final byte next = byteAt(position + 1);
+        if (next == '/') {
+          readEndTag();
+        } else if (next == '?') {
+          skipProcessingInstruction();
+        } else if (startsWith(COMMENT_START)) {
+          skipComment();
+        } else if (startsWith(CDATA_START)) {
+          readCData();
+        } else if (next == '!') {
+          throw unsupported("markup declaration");
+        } else {
+          readStartTag();
+        }
+      } else if (b == '&') {
+        readReference();
+      } else {
+        readText();
+      }
+    } while (depth > 0 && modelBuilder.isValid());
+  }
+
+  private void readStartTag() throws SAXException {
+    position++;
+    final int nameStart = position;
+    final int nameLength = readName();
+    readAttributes();
+    final boolean empty = byteAt(position) == '/';
+    if (empty) {
+      position++;
+    }
+    expect('>');
+
+    if (skippedDepth > 0) {
+      if (!empty) {
+        push(nameStart, nameLength);
+      }
+      return;
+    }
+
+    final String name = elementName(nameStart, nameLength);
+    if (modelBuilder.isSkippable(name)) {
+      if (!empty) {
+        push(nameStart, nameLength);
+        skippedDepth = depth;
+      }
+    } else {
+      modelBuilder.startElement(name, this::attributeValue);
+      if (empty) {
+        modelBuilder.endElement(name);
+      } else {
+        push(nameStart, nameLength);
+      }
+    }
+  }
+
+  private void readEndTag() throws SAXException {
+    position += 2;
+    final int nameStart = position;
+    final int nameLength = readName();
+    skipWhitespace();
+    expect('>');
+
+    if (depth == 0
+        || openElements[2 * depth - 1] != nameLength
+        || !regionMatches(openElements[2 * depth - 2], nameStart, nameLength)) {
+      throw unsupported("end tag does not match the start tag");
+    }
+    final boolean skipped = skippedDepth > 0;
+    if (depth == skippedDepth) {
+      skippedDepth = 0;
+    }
+    depth--;
+    if (!skipped) {
+      modelBuilder.endElement(elementName(nameStart, nameLength));
+    }
+  }
+
+  private void push(int nameStart, int nameLength) {
+    if (2 * depth == openElements.length) {
+      openElements = Arrays.copyOf(openElements, 2 * openElements.length);
+    }
+    openElements[2 * depth] = nameStart;
+    openElements[2 * depth + 1] = nameLength;
+    depth++;
+  }
+
+  /**
+   * Reads the attributes of a start tag or the XML declaration, up to the {@code >}, {@code />} or
+   * {@code ?>} that ends it. The values are only checked; they are decoded on demand by {@link
+   * #attributeValue(String)}.
+   */
+  private void readAttributes() {
+    attributeCount = 0;
+    while (true) {
+      final boolean separated = skipWhitespace();
+      final byte b = byteAt(position);
+      if (b == '>' || b == '/' || b == '?') {
+        return;
+      }
+      if (!separated) {
+        throw unsupported("attribute without preceding whitespace");
+      }
+
+      final int nameStart = position;
+      final int nameLength = readName();
+      skipWhitespace();
+      expect('=');
+      skipWhitespace();
+      final byte quote = byteAt(position);
+      if (quote != '"' && quote != '\'') {
+        throw unsupported("attribute value without quotes");
+      }
+      position++;
+      final int valueStart = position;
+      boolean needsDecoding = false;
+      while (byteAt(position) != quote) {
+        if (position == report.length) {
+          throw unsupported("unterminated attribute value");
+        }
+        final byte c = report[position];
+        if (c == '&') {
+          readReference(position);
+          position = referenceEnd;
+          needsDecoding = true;
+        } else if (c == '<') {
+          throw unsupported("'<' in attribute value");
+        } else if (c < 0x20) {
+          needsDecoding = true;
+          position = checkCharacter(position);
+        } else {
+          position++;
+        }
+      }
+      final int valueEnd = position;
+      position++;
+
+      for (int i = 0; i < attributeCount; i++) {
+        if (attributes[5 * i + 1] == nameLength
+            && regionMatches(attributes[5 * i], nameStart, nameLength)) {
+          throw unsupported("duplicate attribute");
+        }
+      }
+      if (5 * attributeCount == attributes.length) {
+        attributes = Arrays.copyOf(attributes, 2 * attributes.length);
+      }
+      final int offset = 5 * attributeCount++;
+      attributes[offset] = nameStart;
+      attributes[offset + 1] = nameLength;
+      attributes[offset + 2] = valueStart;
+      attributes[offset + 3] = valueEnd;
+      attributes[offset + 4] = needsDecoding ? 1 : 0;
+    }
+  }
+
+  /** @return the normalized value of the attribute, {@code null} if the element does not have it */
+  private String attributeValue(String name) {
+    for (int i = 0; i < attributeCount; i++) {
+      if (isAttribute(i, name)) {
+        final int offset = 5 * i;
+        final int start = attributes[offset + 2];
+        final int end = attributes[offset + 3];
+        return attributes[offset + 4] == 0
+            ? new String(report, start, end - start, ISO_8859_1)
+            : decodeAttributeValue(start, end);
+      }
+    }
+    return null;
+  }
+
+  private String decodeAttributeValue(int start, int end) {
+    ensureTextCapacity(end - start);
+    int length = 0;
+    int i = start;
+    while (i < end) {
+      final byte b = report[i];
+      if (b == '&') {
+        length = appendCodePoint(readReference(i), length);
+        i = referenceEnd;
+      } else if (b == '\r') {
+        // line breaks are normalized first, then all whitespace characters become spaces
+        text[length++] = ' ';
+        i += i + 1 < end && report[i + 1] == '\n' ? 2 : 1;
+      } else if (b == '\n' || b == '\t') {
+        text[length++] = ' ';
+        i++;
+      } else if (b >= 0) {
+        text[length++] = (char) b;
+        i++;
+      } else {
+        length = appendCodePoint(decodeSequence(i), length);
+        i += sequenceLength(b);
+      }
+    }
+    return new String(text, 0, length);
+  }
+
+  private boolean isAttribute(int index, String name) {
+    final int offset = 5 * index;
+    return attributes[offset + 1] == name.length() && equalsAscii(attributes[offset], name);
+  }
+
+  private boolean attributeValueEquals(int index, String value) {
+    final int offset = 5 * index;
+    return attributes[offset + 3] - attributes[offset + 2] == value.length()
+        && equalsAscii(attributes[offset + 2], value);
+  }
+
+  /** Passes a reference in the content as separate text to the model, like SAX parsers do. */
+  private void readReference() {
+    final int codePoint = readReference(position);
+    position = referenceEnd;
+    if (skippedDepth == 0) {
+      modelBuilder.characters(text, 0, appendCodePoint(codePoint, 0));
+    }
+  }
+
+  /**
+   * Reads a predefined entity reference or a character reference and sets {@link #referenceEnd} to
+   * the index after it.
+   *
+   * @param start index of the {@code &}
+   * @return the referenced code point
+   */
+  private int readReference(int start) {
+    final int semicolon = indexOf((byte) ';', start + 1, Math.min(start + 12, report.length));
+    if (semicolon < 0) {
+      throw unsupported("unknown reference");
+    }
+    referenceEnd = semicolon + 1;
+    if (report[start + 1] == '#') {
+      return readCharacterReference(start + 2, semicolon);
+    }
+    final int length = semicolon - start - 1;
+    if (length == 2 && report[start + 2] == 't') {
+      if (report[start + 1] == 'l') {
+        return '<';
+      } else if (report[start + 1] == 'g') {
+        return '>';
+      }
+    } else if (length == 3 && equalsAscii(start + 1, "amp")) {
+      return '&';
+    } else if (length == 4 && equalsAscii(start + 1, "quot")) {
+      return '"';
+    } else if (length == 4 && equalsAscii(start + 1, "apos")) {
+      return '\'';
+    }
+    throw unsupported("unknown entity reference");
+  }
+
+  private int readCharacterReference(int start, int end) {
+    final boolean hex = start < end && report[start] == 'x';
+    int i = hex ? start + 1 : start;
+    if (i == end) {
+      throw unsupported("invalid character reference");
+    }
+    int codePoint = 0;
+    for (; i < end; i++) {
+      final int digit = Character.digit(report[i], hex ? 16 : 10);
+      if (digit < 0) {
+        throw unsupported("invalid character reference");
+      }
+      codePoint = codePoint * (hex ? 16 : 10) + digit;
+    }
+    if (!isXmlCharacter(codePoint)) {
+      throw unsupported("reference to an invalid character");
+    }
+    return codePoint;
+  }
+
+  private void readCData() {
+    final int start = position + CDATA_START.length;
+    final int end = indexOf(CDATA_END, start);
+    if (end < 0) {
+      throw unsupported("unterminated CDATA section");
+    }
+    position = end + CDATA_END.length;
+    // SAX parsers pass each CDATA section as a whole
+    passText(start, end);
+  }
+
+  private void readText() {
+    final int start = position;
+    boolean blank = true;
+    boolean printable = true;
+    while (position < report.length) {
+      final byte b = report[position];
+      if (b == '<' || b == '&') {
+        break;
+      } else if (b == ']' && startsWith(CDATA_END)) {
+        throw unsupported("']]>' outside of a CDATA section");
+      } else if (b != ' ') {
+        blank &= isWhitespace(b);
+        printable &= b > ' ' && b < 0x7f;
+      }
+      position++;
+    }
+    if (blank) {
+      // the model ignores blank text however a parser splits it
+      return;
+    }
+    if (!printable && skippedDepth == 0) {
+      throw unsupported(
+          "text outside of a CDATA section with characters other than printable ASCII");
+    }
+    passText(start, position);
+  }
+
+  /** Passes the decoded text to the model, or only checks it if it is skipped. */
+  private void passText(int start, int end) {
+    if (skippedDepth > 0) {
+      for (int i = start; i < end; ) {
+        i = checkCharacter(i);
+      }
+      return;
+    }
+
+    ensureTextCapacity(end - start);
+    int length = 0;
+    int i = start;
+    while (i < end) {
+      final byte b = report[i];
+      if (b >= 0x20) {
+        text[length++] = (char) b;
+        i++;
+      } else if (b == '\r') {
+        text[length++] = '\n';
+        i += i + 1 < end && report[i + 1] == '\n' ? 2 : 1;
+      } else if (b == '\n' || b == '\t') {
+        text[length++] = (char) b;
+        i++;
+      } else if (b < 0) {
+        length = appendCodePoint(decodeSequence(i), length);
+        i += sequenceLength(b);
+      } else {
+        throw unsupported("invalid character");
+      }
+    }
+    modelBuilder.characters(text, 0, length);
+  }
+
+  private void skipComment() {
+    final int start = position + COMMENT_START.length;
+    final int end = indexOf(COMMENT_END, start);
+    final int doubleHyphen = indexOf(COMMENT_END, 0, 2, start);
+    if (end < 0 || doubleHyphen != end) {
+      throw unsupported("invalid comment");
+    }
+    for (int i = start; i < end; ) {
+      i = checkCharacter(i);
+    }
+    position = end + COMMENT_END.length;
+  }
+
+  private void skipProcessingInstruction() {
+    position += 2;
+    final int targetStart = position;
+    final int targetLength = readName();
+    if (targetLength == 3
+        && (report[targetStart] | 0x20) == 'x'
+        && (report[targetStart + 1] | 0x20) == 'm'
+        && (report[targetStart + 2] | 0x20) == 'l') {
+      throw unsupported("misplaced XML declaration");
+    }
+    final int end = indexOf(PROCESSING_INSTRUCTION_END, position);
+    if (end < 0 || (end != position && !isWhitespace(report[position]))) {
+      throw unsupported("invalid processing instruction");
+    }
+    for (int i = position; i < end; ) {
+      i = checkCharacter(i);
+    }
+    position = end + PROCESSING_INSTRUCTION_END.length;
+  }
+
+  /** @return the length of the name that starts at the current position, which is skipped */
+  private int readName() {
+    final int start = position;
+    while (position < report.length && isNameCharacter(report[position], position == start)) {
+      position++;
+    }
+    if (position == start) {
+      throw unsupported("invalid name");
+    }
+    if (position < report.length && report[position] < 0) {
+      throw unsupported("name with characters other than ASCII");
+    }
+    return position - start;
+  }
+
+  private String elementName(int start, int length) {
+    for (int i = 0; i < ELEMENT_NAMES.length; i++) {
+      final byte[] name = ELEMENT_NAME_BYTES[i];
+      if (name.length == length && regionMatches(name, start)) {
+        return ELEMENT_NAMES[i];
+      }
+    }
+    return new String(report, start, length, ISO_8859_1);
+  }
+
+  /**
+   * Checks that the character at the index is allowed in XML documents.
+   *
+   * @return the index after the character
+   */
+  private int checkCharacter(int index) {
+    final byte b = report[index];
+    if (b >= 0x20 || b == '\n' || b == '\r' || b == '\t') {
+      return index + 1;
+    } else if (b < 0) {
+      decodeSequence(index);
+      return index + sequenceLength(b);
+    }
+    throw unsupported("invalid character");
+  }
+
+  /** @return the code point of the UTF-8 sequence at the index, if it is allowed in XML */
+  private int decodeSequence(int index) {
+    final int length = sequenceLength(report[index]);
+    if (index + length > report.length) {
+      throw unsupported("truncated UTF-8 sequence");
+    }
+    int codePoint = report[index] & (0x7f >> length);
+    for (int i = index + 1; i < index + length; i++) {
+      if ((report[i] & 0xc0) != 0x80) {
+        throw unsupported("malformed UTF-8 sequence");
+      }
+      codePoint = codePoint << 6 | report[i] & 0x3f;
+    }
+    final int minimum = length == 2 ? 0x80 : length == 3 ? 0x800 : 0x10000;
+    if (codePoint < minimum || !isXmlCharacter(codePoint)) {
+      throw unsupported("malformed UTF-8 sequence");
+    }
+    return codePoint;
+  }
+
+  private int sequenceLength(byte lead) {
+    if ((lead & 0xe0) == 0xc0) {
+      return 2;
+    } else if ((lead & 0xf0) == 0xe0) {
+      return 3;
+    } else if ((lead & 0xf8) == 0xf0) {
+      return 4;
+    }
+    throw unsupported("malformed UTF-8 sequence");
+  }
+
+  private int appendCodePoint(int codePoint, int length) {
+    if (Character.isBmpCodePoint(codePoint)) {
+      text[length] = (char) codePoint;
+      return length + 1;
+    }
+    text[length] = Character.highSurrogate(codePoint);
+    text[length + 1] = Character.lowSurrogate(codePoint);
+    return length + 2;
+  }
+
+  /** UTF-8 never needs more characters than bytes, so the capacity is the number of bytes. */
+  private void ensureTextCapacity(int capacity) {
+    if (text.length < capacity) {
+      text = new char[Math.max(capacity, 2 * text.length)];
+    }
+  }
+
+  /** @return {@code true} if any whitespace was skipped */
+  private boolean skipWhitespace() {
+    final int start = position;
+    while (position < report.length && isWhitespace(report[position])) {
+      position++;
+    }
+    return position != start;
+  }
+
+  private void expect(char c) {
+    if (byteAt(position) != c) {
+      throw unsupported("expected '" + c + "'");
+    }
+    position++;
+  }
+
+  private void expect(byte[] bytes) {
+    if (!startsWith(bytes)) {
+      throw unsupported("expected '" + new String(bytes, US_ASCII) + "'");
+    }
+    position += bytes.length;
+  }
+
+  /** @return the byte at the index, 0 after the end of the report */
+  private byte byteAt(int index) {
+    return index < report.length ? report[index] : 0;
+  }
+
+  private boolean startsWith(byte[] prefix) {
+    return position + prefix.length <= report.length && regionMatches(prefix, position);
+  }
+
+  private boolean regionMatches(byte[] bytes, int start) {
+    for (int i = 0; i < bytes.length; i++) {
+      if (report[start + i] != bytes[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private boolean regionMatches(int start, int otherStart, int length) {
+    for (int i = 0; i < length; i++) {
+      if (report[start + i] != report[otherStart + i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** @return {@code true} if the bytes at the index are the ASCII characters of the string */
+  private boolean equalsAscii(int start, String s) {
+    for (int i = 0; i < s.length(); i++) {
+      if (report[start + i] != s.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private int indexOf(byte b, int from, int to) {
+    for (int i = from; i < to; i++) {
+      if (report[i] == b) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private int indexOf(byte[] bytes, int from) {
+    return indexOf(bytes, 0, bytes.length, from);
+  }
+
+  /** @return the index of the first occurrence of a part of the bytes, -1 if there is none */
+  private int indexOf(byte[] bytes, int offset, int length, int from) {
+    final byte first = bytes[offset];
+    for (int i = from; i <= report.length - length; i++) {
+      if (report[i] == first) {
+        int j = 1;
+        while (j < length && report[i + j] == bytes[offset + j]) {
+          j++;
+        }
+        if (j == length) {
+          return i;
+        }
+      }
+    }
+    return -1;
+  }
+
+  private static boolean isWhitespace(byte b) {
+    return b == ' ' || b == '\n' || b == '\t' || b == '\r';
+  }
+
+  private static boolean isNameCharacter(byte b, boolean first) {
+    if ((b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z') || b == '_' || b == ':') {
+      return true;
+    }
+    return !first && ((b >= '0' && b <= '9') || b == '-' || b == '.');
+  }
+
+  private static boolean isXmlCharacter(int codePoint) {
+    return codePoint >= 0x20 && codePoint <= 0xd7ff
+        || codePoint == '\n'
+        || codePoint == '\r'
+        || codePoint == '\t'
+        || codePoint >= 0xe000 && codePoint <= 0xfffd
+        || codePoint >= 0x10000 && codePoint <= 0x10ffff;
+  }
+
+  private static byte[][] toBytes(String[] names) {
+    final byte[][] bytes = new byte[names.length][];
+    for (int i = 0; i < names.length; i++) {
+      bytes[i] = names[i].getBytes(US_ASCII);
+    }
+    return bytes;
+  }
+
+  private static UnsupportedContentException unsupported(String reason) {
+    return new UnsupportedContentException(reason);
+  }
+
+  /** Thrown for content outside of the subset that the tokenizer supports. */
+  private static final class UnsupportedContentException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private UnsupportedContentException(String reason) {
+      super(reason, null, false, false);
+    }
+  }
+}
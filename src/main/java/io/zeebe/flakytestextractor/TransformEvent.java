@@ -0,0 +1,23 @@
+package io.zeebe.flakytestextractor;
+
+/**
+ * JDK Flight Recorder event for reducing a test suite to its flaky tests. This is the version for
+ * Java 8, which records nothing; the multi-release JAR contains the recorded version for Java 11
+ * and later.
+ */
+public class TransformEvent {
+
+  public void begin() {}
+
+  public boolean shouldCommit() {
+    return false;
+  }
+
+  public void commit() {}
+
+  public void setTestSuite(String testSuite) {}
+
+  public void setTestCases(int testCases) {}
+
+  public void setFlakyTestCases(int flakyTestCases) {}
+}
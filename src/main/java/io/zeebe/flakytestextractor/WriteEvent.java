@@ -0,0 +1,23 @@
+package io.zeebe.flakytestextractor;
+
+/**
+ * JDK Flight Recorder event for writing the flaky tests of a report file. This is the version for
+ * Java 8, which records nothing; the multi-release JAR contains the recorded version for Java 11
+ * and later.
+ */
+public class WriteEvent {
+
+  public void begin() {}
+
+  public boolean shouldCommit() {
+    return false;
+  }
+
+  public void commit() {}
+
+  public void setReportFile(String reportFile) {}
+
+  public void setTestSuites(int testSuites) {}
+
+  public void setBytesWritten(long bytesWritten) {}
+}
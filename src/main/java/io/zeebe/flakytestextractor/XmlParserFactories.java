@@ -0,0 +1,133 @@
+package io.zeebe.flakytestextractor;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParser;
+import javax.xml.parsers.SAXParserFactory;
+import javax.xml.stream.XMLInputFactory;
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXNotRecognizedException;
+import org.xml.sax.SAXNotSupportedException;
+
+/**
+ * Creates the XML parsers of this plugin. They never load anything but the parsed file: some tools
+ * write reports with a DOCTYPE declaration, and resolving it stalls the build until a timeout on
+ * agents without network access.
+ *
+ * <p>Internal DTD subsets are still read, so that reports which declare their own entities parse as
+ * before; references to external entities are skipped. Secure processing limits the expansion of
+ * entities, but the JDK also counts each predefined and character reference towards the total size
+ * of entities, so that limit is raised to what the largest report a parser can read may contain.
+ *
+ * <p>Features and properties that the JAXP implementation does not know are left out, e.g. those of
+ * the JDK when an older Xerces is on the classpath of the plugin. Such a parser keeps its own
+ * defaults, but it can still read the reports.
+ */
+final class XmlParserFactories {
+
+  /** Same as the JDK default, enough for any report that declares entities at all */
+  static final int ENTITY_EXPANSION_LIMIT = 64_000;
+
+  /** Limit for the replacement text of a single entity */
+  static final int MAX_GENERAL_ENTITY_SIZE = 1024 * 1024;
+
+  /**
+   * Limit for the replacement text of all entities and references of a report. A reference takes at
+   * least four bytes, e.g. {@code &lt;} or {@code &#9;}, for each character it is replaced by, so a
+   * report of 2 GiB, the most that can be read into an array, stays below this limit. What entities
+   * declared in a DTD expand to remains bounded.
+   */
+  static final int TOTAL_ENTITY_SIZE_LIMIT = 1 << 29;
+
+  private static final String LOAD_EXTERNAL_DTD =
+      "http://apache.org/xml/features/nonvalidating/load-external-dtd";
+
+  private static final String EXTERNAL_GENERAL_ENTITIES =
+      "http://xml.org/sax/features/external-general-entities";
+
+  private static final String EXTERNAL_PARAMETER_ENTITIES =
+      "http://xml.org/sax/features/external-parameter-entities";
+
+  /** Property of the StAX implementation of the JDK, ignored by others */
+  private static final String IGNORE_EXTERNAL_DTD =
+      "http://java.sun.com/xml/stream/properties/ignore-external-dtd";
+
+  private static final String[][] ENTITY_LIMITS = {
+    {"jdk.xml.entityExpansionLimit", String.valueOf(ENTITY_EXPANSION_LIMIT)},
+    {"jdk.xml.maxGeneralEntitySizeLimit", String.valueOf(MAX_GENERAL_ENTITY_SIZE)},
+    {"jdk.xml.totalEntitySizeLimit", String.valueOf(TOTAL_ENTITY_SIZE_LIMIT)}
+  };
+
+  /** Looking up the factory is expensive, and it is not thread-safe, see {@link #newSAXParser()} */
+  private static final SAXParserFactory SAX_PARSER_FACTORY = createSAXParserFactory();
+
+  private XmlParserFactories() {}
+
+  /** @return a new SAX parser; its configuration survives {@link SAXParser#reset()} */
+  static SAXParser newSAXParser() throws ParserConfigurationException, SAXException {
+    final SAXParser saxParser;
+    synchronized (SAX_PARSER_FACTORY) {
+      saxParser = SAX_PARSER_FACTORY.newSAXParser();
+    }
+    for (String[] limit : ENTITY_LIMITS) {
+      try {
+        saxParser.setProperty(limit[0], limit[1]);
+      } catch (SAXNotRecognizedException | SAXNotSupportedException e) {
+        // parsers other than that of the JDK keep their own limits
+      }
+    }
+    return saxParser;
+  }
+
+  /** @return a new StAX factory, which is not thread-safe */
+  static XMLInputFactory newXMLInputFactory() {
+    final XMLInputFactory factory = XMLInputFactory.newInstance();
+    factory.setProperty(XMLInputFactory.IS_VALIDATING, false);
+    factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    setPropertyIfSupported(factory, XMLConstants.ACCESS_EXTERNAL_DTD, "");
+    setPropertyIfSupported(factory, IGNORE_EXTERNAL_DTD, true);
+    for (String[] limit : ENTITY_LIMITS) {
+      setPropertyIfSupported(factory, limit[0], limit[1]);
+    }
+    return factory;
+  }
+
+  private static SAXParserFactory createSAXParserFactory() {
+    return configure(SAXParserFactory.newInstance());
+  }
+
+  /**
+   * @param factory factory to configure
+   * @return the factory
+   */
+  static SAXParserFactory configure(SAXParserFactory factory) {
+    factory.setNamespaceAware(false);
+    factory.setValidating(false);
+    try {
+      factory.setXIncludeAware(false);
+    } catch (UnsupportedOperationException e) {
+      // older implementations do not support XInclude at all
+    }
+    setFeatureIfSupported(factory, XMLConstants.FEATURE_SECURE_PROCESSING, true);
+    setFeatureIfSupported(factory, LOAD_EXTERNAL_DTD, false);
+    setFeatureIfSupported(factory, EXTERNAL_GENERAL_ENTITIES, false);
+    setFeatureIfSupported(factory, EXTERNAL_PARAMETER_ENTITIES, false);
+    return factory;
+  }
+
+  private static void setFeatureIfSupported(SAXParserFactory factory, String name, boolean value) {
+    try {
+      factory.setFeature(name, value);
+    } catch (ParserConfigurationException | SAXException e) {
+      // other SAX implementations may not know the feature
+    }
+  }
+
+  private static void setPropertyIfSupported(XMLInputFactory factory, String name, Object value) {
+    try {
+      factory.setProperty(name, value);
+    } catch (IllegalArgumentException e) {
+      // other StAX implementations do not know the property of the JDK
+    }
+  }
+}
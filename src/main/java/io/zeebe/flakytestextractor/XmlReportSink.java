@@ -0,0 +1,74 @@
+package io.zeebe.flakytestextractor;
+
+import io.zeebe.flakytestextractor.ExtractionMetrics.Phase;
+import java.io.File;
+import java.util.List;
+
+/**
+ * Writes the flaky tests as XML reports in the Surefire format, either one {@code -FLAKY.xml}
+ * report per original report or a single consolidated report, see {@link XmlReporterWriter}.
+ */
+public class XmlReportSink implements FlakyTestSink {
+
+  private final XmlReporterWriter reportWriter;
+
+  private final XmlReporterWriter.ConsolidatedReport consolidatedReport;
+
+  private final ExtractionMetrics metrics;
+
+  /**
+   * @param reportWriter writer for the reports
+   * @param consolidatedReport report to add all flaky tests to, {@code null} to write one report
+   *     per original report
+   * @param metrics metrics to record the time and output of the write phase in
+   */
+  public XmlReportSink(
+      XmlReporterWriter reportWriter,
+      XmlReporterWriter.ConsolidatedReport consolidatedReport,
+      ExtractionMetrics metrics) {
+    this.reportWriter = reportWriter;
+    this.consolidatedReport = consolidatedReport;
+    this.metrics = metrics;
+  }
+
+  /**
+   * @param originalReport report file the flaky tests are extracted from
+   * @return the report file the flaky tests of the original report are written to
+   */
+  public File getGeneratedReport(File originalReport) {
+    return consolidatedReport != null
+        ? consolidatedReport.getReportFile()
+        : reportWriter.getFlakyReportFile(originalReport);
+  }
+
+  @Override
+  public void write(List<FlakyReport> reports) {
+    for (FlakyReport report : reports) {
+      final long writeStart = ExtractionMetrics.startTimer();
+      if (consolidatedReport != null) {
+        // the file is counted once it is complete, see close()
+        consolidatedReport.add(report.getOriginalReport(), report.getFlakyTestSuites());
+      } else {
+        reportWriter.writeXMLReport(report.getOriginalReport(), report.getFlakyTestSuites());
+        metrics.recordFiles(Phase.WRITE, 1, 0);
+        metrics.recordBytesWritten(Phase.WRITE, report.getGeneratedReport().length());
+      }
+      metrics.recordTime(Phase.WRITE, writeStart);
+    }
+  }
+
+  @Override
+  public void close() {
+    if (consolidatedReport == null) {
+      return;
+    }
+
+    final long writeStart = ExtractionMetrics.startTimer();
+    consolidatedReport.close();
+    metrics.recordTime(Phase.WRITE, writeStart);
+    if (consolidatedReport.isWritten()) {
+      metrics.recordFiles(Phase.WRITE, 1, 0);
+      metrics.recordBytesWritten(Phase.WRITE, consolidatedReport.getReportFile().length());
+    }
+  }
+}
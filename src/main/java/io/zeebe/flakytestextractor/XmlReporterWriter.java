@@ -1,14 +1,14 @@
 package io.zeebe.flakytestextractor;
 
-import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.apache.maven.plugin.surefire.report.FileReporterUtils.stripIllegalFilenameChars;
 
 import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
 import java.util.List;
 import org.apache.maven.plugin.surefire.booterclient.output.InPluginProcessDumpSingleton;
 import org.apache.maven.surefire.api.report.ReporterException;
-import org.apache.maven.surefire.shared.utils.xml.PrettyPrintXMLWriter;
-import org.apache.maven.surefire.shared.utils.xml.XMLWriter;
 
 /**
  * Based on {@code org.apache.maven.plugin.surefire.report.StatelessXmlReporter} (licensed under
@@ -23,25 +23,32 @@ public class XmlReporterWriter {
 
   private final String xsdVersion = "3.0";
 
+  private boolean prettyPrint = true;
+
   public XmlReporterWriter(final File reportsDirectory) {
     this.reportsDirectory = reportsDirectory;
   }
 
+  /**
+   * @param prettyPrint {@code true} to indent the written reports for humans (default), {@code
+   *     false} to write them without whitespace between elements
+   * @return this writer
+   */
+  public XmlReporterWriter setPrettyPrint(final boolean prettyPrint) {
+    this.prettyPrint = prettyPrint;
+    return this;
+  }
+
   public void writeXMLReport(
       final File originalReport, final List<ExtendedReportTestSuite> testSuites) {
-
-    final OutputStream outputStream = getOutputStream(originalReport);
-    try (OutputStreamWriter fw = getWriter(outputStream)) {
-      final XMLWriter ppw = new PrettyPrintXMLWriter(fw);
-      ppw.setEncoding(UTF_8.name());
-
-      for (final ExtendedReportTestSuite testSuite : testSuites) {
-        createTestSuiteElement(ppw, testSuite); // TestSuite
-
-        serializeTestClassWithoutRerun(outputStream, fw, ppw, testSuite.getTestCases());
-
-        ppw.endElement(); // TestSuite
-      }
+    final WriteEvent event = new WriteEvent();
+    event.begin();
+
+    try (FileChannel source = openIfPassedThrough(originalReport, testSuites);
+        SurefireXmlWriter xmlWriter =
+            new SurefireXmlWriter(
+                getOutputStream(getFlakyReportFile(originalReport)), prettyPrint)) {
+      writeTestSuites(xmlWriter, source, testSuites);
     } catch (final Exception e) {
       // It's not a test error.
       // This method must be sail-safe and errors are in a dump log.
@@ -49,135 +56,186 @@ public class XmlReporterWriter {
       InPluginProcessDumpSingleton.getSingleton()
           .dumpException(e, e.getLocalizedMessage(), reportsDirectory);
     }
+
+    if (event.shouldCommit()) {
+      final File reportFile = getFlakyReportFile(originalReport);
+      event.setReportFile(reportFile.getAbsolutePath());
+      event.setTestSuites(testSuites.size());
+      event.setBytesWritten(reportFile.length());
+      event.commit();
+    }
+  }
+
+  /**
+   * Starts a report that collects the flaky tests of all original reports in a single {@code
+   * testsuites} element, instead of writing one report per original report. The file is only
+   * created once the first test suite is added.
+   *
+   * @param reportFile file to write the report to
+   * @return the report, which must be closed when all test suites were added
+   */
+  public ConsolidatedReport startConsolidatedReport(final File reportFile) {
+    return new ConsolidatedReport(reportFile);
+  }
+
+  private void writeTestSuites(
+      final SurefireXmlWriter xmlWriter,
+      final FileChannel source,
+      final List<ExtendedReportTestSuite> testSuites)
+      throws IOException {
+    for (final ExtendedReportTestSuite testSuite : testSuites) {
+      createTestSuiteElement(xmlWriter, testSuite); // TestSuite
+
+      serializeTestClassWithoutRerun(xmlWriter, source, testSuite.getTestCases());
+
+      xmlWriter.endElement(); // TestSuite
+    }
   }
 
   private void serializeTestClassWithoutRerun(
-      final OutputStream outputStream,
-      final OutputStreamWriter fw,
-      final XMLWriter ppw,
+      final SurefireXmlWriter xmlWriter,
+      final FileChannel source,
       final List<ExtendedReportTestCase> testCases)
       throws IOException {
     for (final ExtendedReportTestCase testCase : testCases) {
-      startTestElement(ppw, testCase);
+      startTestElement(xmlWriter, testCase);
       if (!testCase.isSuccessful()) {
-        getTestProblems(fw, ppw, testCase, outputStream);
+        getTestProblems(xmlWriter, source, testCase);
       }
-      createOutErrElements(fw, ppw, testCase, outputStream);
-      ppw.endElement();
+      createOutErrElements(xmlWriter, source, testCase);
+      xmlWriter.endElement();
     }
   }
 
-  private OutputStream getOutputStream(final File originalReport) {
+  /**
+   * @return the original report if content of the test cases is passed through from it, {@code
+   *     null} otherwise
+   */
+  private static FileChannel openIfPassedThrough(
+      final File originalReport, final List<ExtendedReportTestSuite> testSuites)
+      throws IOException {
+    for (final ExtendedReportTestSuite testSuite : testSuites) {
+      for (final ExtendedReportTestCase testCase : testSuite.getTestCases()) {
+        if (testCase.getFailureDetailRange() != null
+            || testCase.getSystemOutRange() != null
+            || testCase.getSystemErrorRange() != null) {
+          return FileChannel.open(originalReport.toPath(), StandardOpenOption.READ);
+        }
+      }
+    }
+    return null;
+  }
+
+  /**
+   * @param originalReport report file the flaky tests were extracted from
+   * @return the file {@link #writeXMLReport(File, List)} writes the flaky tests of the report to
+   */
+  public File getFlakyReportFile(final File originalReport) {
     final String originalFileName = originalReport.getName();
     final String originalFilenameWithoutXML =
         originalFileName.substring(0, originalFileName.length() - 4);
 
-    final File reportFile =
-        new File(
-            reportsDirectory, stripIllegalFilenameChars(originalFilenameWithoutXML + "-FLAKY.xml"));
+    return new File(
+        reportsDirectory, stripIllegalFilenameChars(originalFilenameWithoutXML + "-FLAKY.xml"));
+  }
 
+  private static OutputStream getOutputStream(final File reportFile) {
     try {
-      return new BufferedOutputStream(new FileOutputStream(reportFile), 64 * 1024);
+      // SurefireXmlWriter buffers the output itself
+      return new FileOutputStream(reportFile);
     } catch (final Exception e) {
       throw new ReporterException("When writing report", e);
     }
   }
 
-  private static OutputStreamWriter getWriter(final OutputStream fos) {
-    return new OutputStreamWriter(fos, UTF_8);
-  }
-
-  private void createTestSuiteElement(final XMLWriter ppw, final ExtendedReportTestSuite testSuite)
+  private void createTestSuiteElement(
+      final SurefireXmlWriter xmlWriter, final ExtendedReportTestSuite testSuite)
       throws IOException {
-    ppw.startElement("testsuite");
+    xmlWriter.startElement("testsuite");
 
-    ppw.addAttribute("xmlns:xsi", "http://www.w3.org/2001/XMLSchema-instance");
-    ppw.addAttribute("xsi:noNamespaceSchemaLocation", xsdSchemaLocation);
-    ppw.addAttribute("version", xsdVersion);
+    xmlWriter.addAttribute("xmlns:xsi", "http://www.w3.org/2001/XMLSchema-instance");
+    xmlWriter.addAttribute("xsi:noNamespaceSchemaLocation", xsdSchemaLocation);
+    xmlWriter.addAttribute("version", xsdVersion);
 
     final String reportName = testSuite.getFullClassName();
-    ppw.addAttribute("name", reportName == null ? "" : extraEscapeAttribute(reportName));
-    ppw.addAttribute("time", String.valueOf(testSuite.getTimeElapsed()));
-    ppw.addAttribute("tests", String.valueOf(testSuite.getNumberOfTests()));
-    ppw.addAttribute("errors", String.valueOf(testSuite.getNumberOfErrors()));
-    ppw.addAttribute("skipped", String.valueOf(testSuite.getNumberOfSkipped()));
-    ppw.addAttribute("failures", String.valueOf(testSuite.getNumberOfFailures()));
+    xmlWriter.addAttribute("name", reportName == null ? "" : extraEscapeAttribute(reportName));
+    xmlWriter.addAttribute("time", String.valueOf(testSuite.getTimeElapsed()));
+    xmlWriter.addAttribute("tests", String.valueOf(testSuite.getNumberOfTests()));
+    xmlWriter.addAttribute("errors", String.valueOf(testSuite.getNumberOfErrors()));
+    xmlWriter.addAttribute("skipped", String.valueOf(testSuite.getNumberOfSkipped()));
+    xmlWriter.addAttribute("failures", String.valueOf(testSuite.getNumberOfFailures()));
   }
 
-  private void startTestElement(final XMLWriter ppw, final ExtendedReportTestCase testCase)
-      throws IOException {
-    ppw.startElement("testcase");
+  private void startTestElement(
+      final SurefireXmlWriter xmlWriter, final ExtendedReportTestCase testCase) throws IOException {
+    xmlWriter.startElement("testcase");
     final String name = testCase.getName();
-    ppw.addAttribute("name", name == null ? "" : extraEscapeAttribute(name));
+    xmlWriter.addAttribute("name", name == null ? "" : extraEscapeAttribute(name));
 
     final String className = testCase.getFullClassName();
     if (className != null) {
-      ppw.addAttribute("classname", extraEscapeAttribute(className));
+      xmlWriter.addAttribute("classname", extraEscapeAttribute(className));
     }
 
-    ppw.addAttribute("time", String.valueOf(testCase.getTime()));
+    xmlWriter.addAttribute("time", String.valueOf(testCase.getTime()));
   }
 
   private static void getTestProblems(
-      final OutputStreamWriter outputStreamWriter,
-      final XMLWriter ppw,
-      final ExtendedReportTestCase testCase,
-      final OutputStream fw)
+      final SurefireXmlWriter xmlWriter,
+      final FileChannel source,
+      final ExtendedReportTestCase testCase)
       throws IOException {
-    ppw.startElement("failure"); // failure
+    xmlWriter.startElement("failure"); // failure
 
-    addAttributeIfNotEmpty(ppw, "message", testCase.getFailureMessage());
-    addAttributeIfNotEmpty(ppw, "type", testCase.getFailureType());
+    addAttributeIfNotEmpty(xmlWriter, "message", testCase.getFailureMessage());
+    addAttributeIfNotEmpty(xmlWriter, "type", testCase.getFailureType());
 
     final String stackTrace = testCase.getFailureDetail();
-    if (stackTrace != null) {
-      extraEscapeElementValue(stackTrace, outputStreamWriter, ppw, fw);
+    if (testCase.getFailureDetailRange() != null) {
+      xmlWriter.copyContent(source, testCase.getFailureDetailRange());
+    } else if (stackTrace != null) {
+      // always CDATA, also if the stack trace contains characters that are illegal in XML 1.0,
+      // which PrettyPrintXMLWriter wrote as escaped text without line feeds, see SurefireXmlWriter
+      xmlWriter.writeCdata(stackTrace);
     }
 
-    ppw.endElement(); // failure
+    xmlWriter.endElement(); // failure
   }
 
   private static void addAttributeIfNotEmpty(
-      final XMLWriter ppw, final String attributeName, final String valueToWrite)
+      final SurefireXmlWriter xmlWriter, final String attributeName, final String valueToWrite)
       throws IOException {
     if (valueToWrite != null && !valueToWrite.isEmpty()) {
-      ppw.addAttribute(attributeName, extraEscapeAttribute(valueToWrite));
+      xmlWriter.addAttribute(attributeName, extraEscapeAttribute(valueToWrite));
     }
   }
 
   // Create system-out and system-err elements
   private static void createOutErrElements(
-      final OutputStreamWriter outputStreamWriter,
-      final XMLWriter ppw,
-      final ExtendedReportTestCase testCase,
-      final OutputStream fw)
+      final SurefireXmlWriter xmlWriter,
+      final FileChannel source,
+      final ExtendedReportTestCase testCase)
       throws IOException {
-    final EncodingOutputStream eos = new EncodingOutputStream(fw);
-
-    addOutputStreamElement(outputStreamWriter, eos, ppw, testCase.getSystemOut(), "system-out");
-    addOutputStreamElement(outputStreamWriter, eos, ppw, testCase.getSystemError(), "system-err");
+    addOutputStreamElement(
+        xmlWriter, source, testCase.getSystemOutRange(), testCase.getSystemOut(), "system-out");
+    addOutputStreamElement(
+        xmlWriter, source, testCase.getSystemErrorRange(), testCase.getSystemError(), "system-err");
   }
 
   private static void addOutputStreamElement(
-      final OutputStreamWriter outputStreamWriter,
-      final EncodingOutputStream eos,
-      final XMLWriter xmlWriter,
+      final SurefireXmlWriter xmlWriter,
+      final FileChannel source,
+      final ByteRange range,
       final String content,
       final String name)
       throws IOException {
-    if (content != null && !content.isEmpty()) {
+    if (range != null) {
       xmlWriter.startElement(name);
-
-      try {
-        xmlWriter.writeText(""); // Cheat sax to emit element
-        outputStreamWriter.flush();
-        eos.getUnderlying().write(ByteConstantsHolder.CDATA_START_BYTES); // emit cdata
-        eos.write(content.getBytes(UTF_8));
-        eos.getUnderlying().write(ByteConstantsHolder.CDATA_END_BYTES);
-        eos.flush();
-      } catch (final IOException e) {
-        throw new ReporterException("When writing xml report stdout/stderr", e);
-      }
+      xmlWriter.copyContent(source, range);
+      xmlWriter.endElement();
+    } else if (content != null && !content.isEmpty()) {
+      xmlWriter.startElement(name);
+      xmlWriter.writeCdata(content);
       xmlWriter.endElement();
     }
   }
@@ -190,74 +248,7 @@ public class XmlReporterWriter {
    */
   private static String extraEscapeAttribute(final String message) {
     // Someday convert to xml 1.1 which handles everything but 0 inside string
-    return containsEscapesIllegalXml10(message) ? escapeXml(message, true) : message;
-  }
-
-  /**
-   * Writes escaped string or the message within CDATA if all characters are legal.
-   *
-   * @param message The string
-   */
-  private static void extraEscapeElementValue(
-      final String message,
-      final OutputStreamWriter outputStreamWriter,
-      final XMLWriter xmlWriter,
-      final OutputStream fw)
-      throws IOException {
-    // Someday convert to xml 1.1 which handles everything but 0 inside string
-    if (containsEscapesIllegalXml10(message)) {
-      xmlWriter.writeText(escapeXml(message, false));
-    } else {
-      try {
-        final EncodingOutputStream eos = new EncodingOutputStream(fw);
-        xmlWriter.writeText(""); // Cheat sax to emit element
-        outputStreamWriter.flush();
-        eos.getUnderlying().write(ByteConstantsHolder.CDATA_START_BYTES);
-        eos.write(message.getBytes(UTF_8));
-        eos.getUnderlying().write(ByteConstantsHolder.CDATA_END_BYTES);
-        eos.flush();
-      } catch (final IOException e) {
-        throw new ReporterException("When writing xml element", e);
-      }
-    }
-  }
-
-  private static final class EncodingOutputStream extends FilterOutputStream {
-    private int c1;
-
-    private int c2;
-
-    EncodingOutputStream(final OutputStream out) {
-      super(out);
-    }
-
-    OutputStream getUnderlying() {
-      return out;
-    }
-
-    private boolean isCdataEndBlock(final int c) {
-      return c1 == ']' && c2 == ']' && c == '>';
-    }
-
-    @Override
-    public void write(final int b) throws IOException {
-      if (isCdataEndBlock(b)) {
-        out.write(ByteConstantsHolder.CDATA_ESCAPE_STRING_BYTES);
-      } else if (isIllegalEscape(b)) {
-        // uh-oh! This character is illegal in XML 1.0!
-        // http://www.w3.org/TR/1998/REC-xml-19980210#charsets
-        // we're going to deliberately doubly-XML escape it...
-        // there's nothing better we can do! :-(
-        // SUREFIRE-456
-        out.write(ByteConstantsHolder.AMP_BYTES);
-        out.write(String.valueOf(b).getBytes(UTF_8));
-        out.write(';'); // & Will be encoded to amp inside xml encodingSHO
-      } else {
-        out.write(b);
-      }
-      c1 = c2;
-      c2 = b;
-    }
+    return containsEscapesIllegalXml10(message) ? escapeXml(message) : message;
   }
 
   private static boolean containsEscapesIllegalXml10(final String message) {
@@ -271,21 +262,16 @@ public class XmlReporterWriter {
   }
 
   private static boolean isIllegalEscape(final char c) {
-    return isIllegalEscape((int) c);
-  }
-
-  private static boolean isIllegalEscape(final int c) {
-    return c >= 0 && c < 32 && c != '\n' && c != '\r' && c != '\t';
+    return c < 32 && c != '\n' && c != '\r' && c != '\t';
   }
 
   /**
    * escape for XML 1.0
    *
    * @param text The string
-   * @param attribute true if the escaped value is inside an attribute
    * @return The escaped string
    */
-  private static String escapeXml(final String text, final boolean attribute) {
+  private static String escapeXml(final String text) {
     final StringBuilder sb = new StringBuilder(text.length() * 2);
     for (int i = 0; i < text.length(); i++) {
       final char c = text.charAt(i);
@@ -295,9 +281,7 @@ public class XmlReporterWriter {
         // we're going to deliberately doubly-XML escape it...
         // there's nothing better we can do! :-(
         // SUREFIRE-456
-        sb.append(attribute ? "&#" : "&amp#")
-            .append((int) c)
-            .append(';'); // & Will be encoded to amp inside
+        sb.append("&#").append((int) c).append(';'); // & Will be encoded to amp inside
         // xml encodingSHO
       } else {
         sb.append(c);
@@ -306,20 +290,80 @@ public class XmlReporterWriter {
     return sb.toString();
   }
 
-  private static final class ByteConstantsHolder {
-    private static final byte[] CDATA_START_BYTES;
+  /**
+   * Report with the flaky tests of all original reports, see {@link
+   * #startConsolidatedReport(File)}. The test suites are streamed into the file as they are added,
+   * so only the test suites of one original report are held in memory at a time.
+   */
+  public final class ConsolidatedReport implements Closeable {
+
+    private final File reportFile;
+
+    private SurefireXmlWriter xmlWriter;
 
-    private static final byte[] CDATA_END_BYTES;
+    private int testSuites;
 
-    private static final byte[] CDATA_ESCAPE_STRING_BYTES;
+    private ConsolidatedReport(final File reportFile) {
+      this.reportFile = reportFile;
+    }
 
-    private static final byte[] AMP_BYTES;
+    /**
+     * @param originalReport report file the flaky tests were extracted from
+     * @param flakyTestSuites test suites with the flaky tests of the report
+     * @throws ReporterException if the report cannot be written
+     */
+    public void add(
+        final File originalReport, final List<ExtendedReportTestSuite> flakyTestSuites) {
+      try (FileChannel source = openIfPassedThrough(originalReport, flakyTestSuites)) {
+        if (xmlWriter == null) {
+          Files.createDirectories(reportFile.getAbsoluteFile().getParentFile().toPath());
+          xmlWriter = new SurefireXmlWriter(getOutputStream(reportFile), prettyPrint);
+          xmlWriter.startElement("testsuites");
+        }
+        writeTestSuites(xmlWriter, source, flakyTestSuites);
+        testSuites += flakyTestSuites.size();
+      } catch (final IOException e) {
+        throw new ReporterException("When writing consolidated report " + reportFile, e);
+      }
+    }
 
-    static {
-      CDATA_START_BYTES = "<![CDATA[".getBytes(UTF_8);
-      CDATA_END_BYTES = "]]>".getBytes(UTF_8);
-      CDATA_ESCAPE_STRING_BYTES = "]]><![CDATA[>".getBytes(UTF_8);
-      AMP_BYTES = "&amp#".getBytes(UTF_8);
+    /** @return the file the report is written to */
+    public File getReportFile() {
+      return reportFile;
+    }
+
+    /** @return {@code true} if at least one test suite was added, i.e. the file was written */
+    public boolean isWritten() {
+      return testSuites > 0;
+    }
+
+    /**
+     * Ends the {@code testsuites} element and closes the file.
+     *
+     * @throws ReporterException if the report cannot be written
+     */
+    @Override
+    public void close() {
+      if (xmlWriter == null) {
+        return;
+      }
+
+      final WriteEvent event = new WriteEvent();
+      event.begin();
+      try (SurefireXmlWriter closedWriter = xmlWriter) {
+        closedWriter.endElement(); // TestSuites
+      } catch (final IOException e) {
+        throw new ReporterException("When writing consolidated report " + reportFile, e);
+      } finally {
+        xmlWriter = null;
+      }
+
+      if (event.shouldCommit()) {
+        event.setReportFile(reportFile.getAbsolutePath());
+        event.setTestSuites(testSuites);
+        event.setBytesWritten(reportFile.length());
+        event.commit();
+      }
     }
   }
 }
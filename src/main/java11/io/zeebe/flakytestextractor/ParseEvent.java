@@ -0,0 +1,46 @@
+package io.zeebe.flakytestextractor;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("io.zeebe.flakytestextractor.Parse")
+@Label("Parse Report")
+@Description("Parsing of a single report file")
+@Category("Flaky Test Extractor")
+@StackTrace(false)
+public class ParseEvent extends Event {
+
+  @Label("Report File")
+  private String reportFile;
+
+  @Label("File Size")
+  @DataAmount
+  private long fileSize;
+
+  @Label("Test Cases")
+  private int testCases;
+
+  @Label("Flaky Test Cases")
+  private int flakyTestCases;
+
+  public void setReportFile(String reportFile) {
+    this.reportFile = reportFile;
+  }
+
+  public void setFileSize(long fileSize) {
+    this.fileSize = fileSize;
+  }
+
+  public void setTestCases(int testCases) {
+    this.testCases = testCases;
+  }
+
+  public void setFlakyTestCases(int flakyTestCases) {
+    this.flakyTestCases = flakyTestCases;
+  }
+}
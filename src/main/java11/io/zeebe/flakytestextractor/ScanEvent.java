@@ -0,0 +1,38 @@
+package io.zeebe.flakytestextractor;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("io.zeebe.flakytestextractor.Scan")
+@Label("Scan Report Directory")
+@Description("Search of a directory for report files")
+@Category("Flaky Test Extractor")
+@StackTrace(false)
+public class ScanEvent extends Event {
+
+  @Label("Directory")
+  private String directory;
+
+  @Label("Report Files")
+  private int reportFiles;
+
+  @Label("Excluded Files")
+  @Description("Files generated by the plugin itself")
+  private int excludedFiles;
+
+  public void setDirectory(String directory) {
+    this.directory = directory;
+  }
+
+  public void setReportFiles(int reportFiles) {
+    this.reportFiles = reportFiles;
+  }
+
+  public void setExcludedFiles(int excludedFiles) {
+    this.excludedFiles = excludedFiles;
+  }
+}
@@ -0,0 +1,37 @@
+package io.zeebe.flakytestextractor;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("io.zeebe.flakytestextractor.Transform")
+@Label("Transform Test Suite")
+@Description("Reduction of a test suite to its flaky tests")
+@Category("Flaky Test Extractor")
+@StackTrace(false)
+public class TransformEvent extends Event {
+
+  @Label("Test Suite")
+  private String testSuite;
+
+  @Label("Test Cases")
+  private int testCases;
+
+  @Label("Flaky Test Cases")
+  private int flakyTestCases;
+
+  public void setTestSuite(String testSuite) {
+    this.testSuite = testSuite;
+  }
+
+  public void setTestCases(int testCases) {
+    this.testCases = testCases;
+  }
+
+  public void setFlakyTestCases(int flakyTestCases) {
+    this.flakyTestCases = flakyTestCases;
+  }
+}
@@ -0,0 +1,39 @@
+package io.zeebe.flakytestextractor;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("io.zeebe.flakytestextractor.Write")
+@Label("Write Flaky Test Report")
+@Description("Writing of the flaky tests of a single report file")
+@Category("Flaky Test Extractor")
+@StackTrace(false)
+public class WriteEvent extends Event {
+
+  @Label("Report File")
+  private String reportFile;
+
+  @Label("Test Suites")
+  private int testSuites;
+
+  @Label("Bytes Written")
+  @DataAmount
+  private long bytesWritten;
+
+  public void setReportFile(String reportFile) {
+    this.reportFile = reportFile;
+  }
+
+  public void setTestSuites(int testSuites) {
+    this.testSuites = testSuites;
+  }
+
+  public void setBytesWritten(long bytesWritten) {
+    this.bytesWritten = bytesWritten;
+  }
+}
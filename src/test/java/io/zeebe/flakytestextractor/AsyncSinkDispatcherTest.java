@@ -0,0 +1,178 @@
+package io.zeebe.flakytestextractor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+
+public class AsyncSinkDispatcherTest {
+
+  @Test
+  public void shouldPassReportsInOrderAndCloseSinks() {
+    // given
+    final RecordingSink sink = new RecordingSink();
+    final AsyncSinkDispatcher sut =
+        new AsyncSinkDispatcher(Collections.singletonList(sink), 4, new TestLogger());
+
+    // when
+    final List<File> submitted = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      final File report = new File("TEST-" + i + ".xml");
+      submitted.add(report);
+      sut.submit(new FlakyReport(report, null, Collections.emptyList()));
+    }
+    sut.close();
+
+    // then
+    assertThat(sink.reports).containsExactlyElementsOf(submitted);
+    assertThat(sink.batchSizes).allSatisfy(size -> assertThat(size).isBetween(1, 4));
+    assertThat(sink.closed).isTrue();
+  }
+
+  @Test
+  public void shouldBatchReportsQueuedWhileSinkIsBusy() throws Exception {
+    // given
+    final CountDownLatch firstBatchStarted = new CountDownLatch(1);
+    final CountDownLatch releaseFirstBatch = new CountDownLatch(1);
+    final RecordingSink sink =
+        new RecordingSink() {
+          @Override
+          public void write(List<FlakyReport> reports) throws IOException {
+            if (batchSizes.isEmpty()) {
+              firstBatchStarted.countDown();
+              awaitQuietly(releaseFirstBatch);
+            }
+            super.write(reports);
+          }
+        };
+    final AsyncSinkDispatcher sut =
+        new AsyncSinkDispatcher(Collections.singletonList(sink), 4, new TestLogger());
+    sut.submit(new FlakyReport(new File("TEST-0.xml"), null, Collections.emptyList()));
+    assertThat(firstBatchStarted.await(10, TimeUnit.SECONDS)).isTrue();
+
+    // when
+    for (int i = 1; i <= 3; i++) {
+      sut.submit(new FlakyReport(new File("TEST-" + i + ".xml"), null, Collections.emptyList()));
+    }
+    releaseFirstBatch.countDown();
+    sut.close();
+
+    // then
+    assertThat(sink.batchSizes).containsExactly(1, 3);
+  }
+
+  @Test
+  public void shouldSkipFailingSinkWithoutAffectingOthers() {
+    // given
+    final RecordingSink failingSink =
+        new RecordingSink() {
+          @Override
+          public void write(List<FlakyReport> reports) throws IOException {
+            super.write(reports);
+            throw new IOException("disk full");
+          }
+        };
+    final RecordingSink sink = new RecordingSink();
+    final AsyncSinkDispatcher sut =
+        new AsyncSinkDispatcher(Arrays.asList(failingSink, sink), 1, new TestLogger());
+
+    // when
+    for (int i = 0; i < 10; i++) {
+      sut.submit(new FlakyReport(new File("TEST-" + i + ".xml"), null, Collections.emptyList()));
+    }
+    sut.close();
+
+    // then
+    assertThat(failingSink.batchSizes).containsExactly(1);
+    assertThat(failingSink.closed).isTrue();
+    assertThat(sink.reports).hasSize(10);
+  }
+
+  @Test
+  public void shouldCloseSinksOnlyOnce() {
+    // given
+    final AtomicInteger closeCount = new AtomicInteger();
+    final RecordingSink sink =
+        new RecordingSink() {
+          @Override
+          public void close() {
+            closeCount.incrementAndGet();
+          }
+        };
+    final AsyncSinkDispatcher sut =
+        new AsyncSinkDispatcher(Collections.singletonList(sink), 4, new TestLogger());
+
+    // when
+    sut.close();
+    sut.close();
+
+    // then
+    assertThat(closeCount).hasValue(1);
+  }
+
+  @Test(timeout = 30_000)
+  public void shouldRethrowErrorOfSinkInsteadOfBlocking() {
+    // given
+    final Error error = new OutOfMemoryError("Java heap space");
+    final RecordingSink failingSink =
+        new RecordingSink() {
+          @Override
+          public void write(List<FlakyReport> reports) {
+            throw error;
+          }
+        };
+    final AsyncSinkDispatcher sut =
+        new AsyncSinkDispatcher(Collections.singletonList(failingSink), 1, new TestLogger());
+
+    // when + then
+    assertThatThrownBy(
+            () -> {
+              for (int i = 0; i < 10; i++) {
+                sut.submit(
+                    new FlakyReport(new File("TEST-" + i + ".xml"), null, Collections.emptyList()));
+              }
+            })
+        .isSameAs(error);
+    assertThatThrownBy(sut::close).isSameAs(error);
+    assertThat(failingSink.closed).isTrue();
+  }
+
+  private static void awaitQuietly(CountDownLatch latch) {
+    try {
+      latch.await(10, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static class RecordingSink implements FlakyTestSink {
+
+    protected final List<Integer> batchSizes = new ArrayList<>();
+
+    private final List<File> reports = new ArrayList<>();
+
+    private volatile boolean closed;
+
+    @Override
+    public void write(List<FlakyReport> reports) throws IOException {
+      batchSizes.add(reports.size());
+      for (FlakyReport report : reports) {
+        this.reports.add(report.getOriginalReport());
+      }
+    }
+
+    @Override
+    public void close() {
+      closed = true;
+    }
+  }
+}
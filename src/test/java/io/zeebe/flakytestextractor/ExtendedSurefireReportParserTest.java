@@ -4,6 +4,7 @@ import static org.assertj.core.api.Assertions.assertThat;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
@@ -60,4 +61,89 @@ public class ExtendedSurefireReportParserTest {
     // then
     assertThat(parsedFiles).describedAs("Successfully parsed files").hasSize(2);
   }
+
+  @Test
+  public void shouldOnlyParseFilesWithFlakyResultsWhenPrescanIsEnabled() throws ParsingException {
+    // given
+    ExtendedSurefireReportParser sut =
+        new ExtendedSurefireReportParser(
+                Collections.singletonList(tempFolder.getRoot()), Locale.US, new TestLogger())
+            .setPrescan(true);
+
+    // when
+    Map<File, List<ExtendedReportTestSuite>> parsedFiles = sut.parseXMLReportFiles();
+
+    // then
+    assertThat(parsedFiles.keySet())
+        .extracting(File::getName)
+        .containsExactly("TEST-com.github.pihme.jenkinstestbed.module1.FlakyTest.xml");
+  }
+
+  @Test
+  public void shouldNotParseExcludedReportFiles() throws ParsingException {
+    // given
+    ExtendedSurefireReportParser sut =
+        new ExtendedSurefireReportParser(
+                Collections.singletonList(tempFolder.getRoot()), Locale.US, new TestLogger())
+            .setExcludedReportFiles(
+                Collections.singleton(
+                    new File(
+                        tempFolder.getRoot(),
+                        "TEST-com.github.pihme.jenkinstestbed.module1.PassingTest.xml")));
+
+    // when
+    Map<File, List<ExtendedReportTestSuite>> parsedFiles = sut.parseXMLReportFiles();
+
+    // then
+    assertThat(parsedFiles.keySet())
+        .extracting(File::getName)
+        .containsExactly("TEST-com.github.pihme.jenkinstestbed.module1.FlakyTest.xml");
+  }
+
+  @Test
+  public void shouldPassEachParsedFileToHandler() throws ParsingException {
+    // given
+    ExtendedSurefireReportParser sut =
+        new ExtendedSurefireReportParser(
+            Collections.singletonList(tempFolder.getRoot()), Locale.US, new TestLogger());
+    List<String> handledFiles = new ArrayList<>();
+
+    // when
+    sut.parseXMLReportFiles(
+        (reportFile, testSuites) -> {
+          assertThat(testSuites).hasSize(1);
+          handledFiles.add(reportFile.getName());
+        });
+
+    // then
+    assertThat(handledFiles)
+        .containsExactlyInAnyOrder(
+            "TEST-com.github.pihme.jenkinstestbed.module1.FlakyTest.xml",
+            "TEST-com.github.pihme.jenkinstestbed.module1.PassingTest.xml");
+  }
+
+  @Test
+  public void shouldPassFilesToHandlerInPathOrderWhenParsingConcurrently() throws ParsingException {
+    // given
+    ExtendedSurefireReportParser sut =
+        new ExtendedSurefireReportParser(
+                Collections.singletonList(tempFolder.getRoot()), Locale.US, new TestLogger())
+            .setParserThreads(4);
+    List<String> handledFiles = new ArrayList<>();
+    List<String> handlerThreads = new ArrayList<>();
+
+    // when
+    sut.parseXMLReportFiles(
+        (reportFile, testSuites) -> {
+          handledFiles.add(reportFile.getName());
+          handlerThreads.add(Thread.currentThread().getName());
+        });
+
+    // then
+    assertThat(handledFiles)
+        .containsExactly(
+            "TEST-com.github.pihme.jenkinstestbed.module1.FlakyTest.xml",
+            "TEST-com.github.pihme.jenkinstestbed.module1.PassingTest.xml");
+    assertThat(handlerThreads).containsOnly(Thread.currentThread().getName());
+  }
 }
@@ -1,17 +1,25 @@
 package io.zeebe.flakytestextractor;
 
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.nio.file.Files;
 import java.util.List;
 import javax.xml.parsers.ParserConfigurationException;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.xml.sax.SAXException;
 
 public class ExtendedTestSuiteXMLParserTest {
   private static final ClassLoader CLASS_LOADER = Thread.currentThread().getContextClassLoader();
 
+  @Rule public TemporaryFolder tempFolder = new TemporaryFolder();
+
   private final ExtendedTestSuiteXMLParser sut = new ExtendedTestSuiteXMLParser(new TestLogger());
 
   @Test
@@ -133,6 +141,162 @@ public class ExtendedTestSuiteXMLParserTest {
     }
   }
 
+  @Test
+  public void testParseOutputOfFailingTestWithSelectiveCapture()
+      throws ParserConfigurationException, SAXException, IOException {
+    ExtendedTestSuiteXMLParser selectiveSut =
+        new ExtendedTestSuiteXMLParser(new TestLogger()).setCaptureOutputOfFlakyTestsOnly(true);
+
+    try (InputStreamReader reader =
+        getReaderForClassPathResource(
+            "surefire-reports/TEST-com.github.pihme.jenkinstestbed.module1.FailingTest.xml")) {
+      List<ExtendedReportTestSuite> testSuites = selectiveSut.parse(reader);
+
+      ExtendedReportTestCase testCase = testSuites.get(0).getTestCases().get(0);
+      assertThat(testCase.hasFailure()).isTrue();
+      assertThat(testCase.getFailureType()).isEqualTo("java.lang.AssertionError");
+      assertThat(testCase.getFailureDetail()).isNull();
+      assertThat(testCase.getSystemOut()).isNull();
+    }
+  }
+
+  @Test
+  public void testParseOutputOfFlakyTestWithSelectiveCapture()
+      throws ParserConfigurationException, SAXException, IOException {
+    ExtendedTestSuiteXMLParser selectiveSut =
+        new ExtendedTestSuiteXMLParser(new TestLogger()).setCaptureOutputOfFlakyTestsOnly(true);
+
+    try (InputStreamReader reader =
+        getReaderForClassPathResource(
+            "surefire-reports/TEST-com.github.pihme.jenkinstestbed.module1.FlakyTest.xml")) {
+      List<ExtendedReportTestSuite> testSuites = selectiveSut.parse(reader);
+
+      ExtendedReportTestCase testCase = testSuites.get(0).getTestCases().get(0);
+      assertThat(testCase.isFlake()).isTrue();
+      assertThat(testCase.getFailureDetail())
+          .isEqualTo(
+              "java.lang.AssertionError: failed\n"
+                  + "\tat com.github.pihme.jenkinstestbed.module1.FlakyTest.flakyTest(FlakyTest.java:16)\n");
+      assertThat(testCase.getFailureErrorLine()).isEqualTo("16");
+      assertThat(testCase.getSystemOut()).isEqualTo("Flaky test\n");
+    }
+  }
+
+  @Test
+  public void testKeepNoOutputOfNonFlakyTestsWithSelectiveCapture()
+      throws ParserConfigurationException, SAXException, IOException {
+    ExtendedTestSuiteXMLParser selectiveSut =
+        new ExtendedTestSuiteXMLParser(new TestLogger()).setCaptureOutputOfFlakyTestsOnly(true);
+
+    try (InputStreamReader failing =
+            getReaderForClassPathResource(
+                "surefire-reports/TEST-com.github.pihme.jenkinstestbed.module1.FailingTest.xml");
+        InputStreamReader error =
+            getReaderForClassPathResource(
+                "surefire-reports/TEST-com.github.pihme.jenkinstestbed.module1.ErrorTest.xml")) {
+      selectiveSut.parse(failing);
+      selectiveSut.parse(error);
+
+      assertThat(selectiveSut.getRetainedCharacters()).isZero();
+    }
+
+    try (InputStreamReader flaky =
+        getReaderForClassPathResource(
+            "surefire-reports/TEST-com.github.pihme.jenkinstestbed.module1.FlakyTest.xml")) {
+      selectiveSut.parse(flaky);
+
+      assertThat(selectiveSut.getRetainedCharacters()).isPositive();
+    }
+  }
+
+  @Test
+  public void testReuseSAXParserForSubsequentFiles()
+      throws ParserConfigurationException, SAXException, IOException {
+    try (InputStreamReader first =
+            getReaderForClassPathResource(
+                "surefire-reports/TEST-com.github.pihme.jenkinstestbed.module1.FailingTest.xml");
+        InputStreamReader second =
+            getReaderForClassPathResource(
+                "surefire-reports/TEST-com.github.pihme.jenkinstestbed.module1.FlakyTest.xml")) {
+      sut.parse(first);
+      List<ExtendedReportTestSuite> testSuites = sut.parse(second);
+
+      assertThat(testSuites).hasSize(1);
+      assertThat(testSuites.get(0).getNumberOfFlakes()).isEqualTo(1);
+      assertThat(testSuites.get(0).getNumberOfFailures()).isEqualTo(0);
+      assertThat(sut.getCreatedParsers()).isEqualTo(1);
+      assertThat(sut.getReusedParsers()).isEqualTo(1);
+    }
+  }
+
+  @Test
+  public void testDecodeReportInDeclaredEncoding() throws Exception {
+    // given
+    final File report = tempFolder.newFile("TEST-io.zeebe.Test.xml");
+    Files.write(
+        report.toPath(),
+        ("<?xml version=\"1.0\" encoding=\"ISO-8859-1\"?>\n"
+                + "<testsuite name=\"io.zeebe.Test\" time=\"1\">\n"
+                + "  <testcase name=\"gr\u00fc\u00dfe\" classname=\"io.zeebe.Test\" time=\"1\">\n"
+                + "    <flakyFailure message=\"\u00e4\" type=\"java.lang.AssertionError\"/>\n"
+                + "    <system-out><![CDATA[\u00f6\u00fc]]></system-out>\n"
+                + "  </testcase>\n"
+                + "</testsuite>\n")
+            .getBytes(ISO_8859_1));
+
+    for (ParserEngine parserEngine : ParserEngine.values()) {
+      // when
+      final List<ExtendedReportTestSuite> testSuites =
+          parserEngine.createParser(new TestLogger()).parse(report.getAbsolutePath());
+
+      // then
+      final ExtendedReportTestCase testCase = testSuites.get(0).getTestCases().get(0);
+      assertThat(testCase.getName()).describedAs(parserEngine.name()).isEqualTo("gr\u00fc\u00dfe");
+      assertThat(testCase.getFailureMessage()).isEqualTo("\u00e4");
+      assertThat(testCase.getSystemOut()).isEqualTo("\u00f6\u00fc");
+    }
+  }
+
+  @Test
+  public void testRejectReportNotEncodedAsDeclared() throws Exception {
+    // given
+    final File report = tempFolder.newFile("TEST-io.zeebe.Test.xml");
+    Files.write(
+        report.toPath(),
+        ("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                + "<testsuite name=\"io.zeebe.Test\" time=\"1\">\u00e4</testsuite>\n")
+            .getBytes(ISO_8859_1));
+
+    for (ParserEngine parserEngine : ParserEngine.values()) {
+      // when + then
+      assertThatThrownBy(
+              () -> parserEngine.createParser(new TestLogger()).parse(report.getAbsolutePath()))
+          .describedAs(parserEngine.name())
+          .isInstanceOf(SAXException.class);
+    }
+  }
+
+  @Test
+  public void testReadReportThroughSmallInputBuffer() throws Exception {
+    // given
+    final File report =
+        new File(
+            CLASS_LOADER
+                .getResource(
+                    "surefire-reports/TEST-com.github.pihme.jenkinstestbed.module1.FlakyTest.xml")
+                .toURI());
+
+    // when
+    final List<ExtendedReportTestSuite> testSuites =
+        sut.setInputBufferSize(7).parse(report.getAbsolutePath());
+
+    // then
+    final ExtendedReportTestCase testCase = testSuites.get(0).getTestCases().get(0);
+    assertThat(testCase.isFlake()).isTrue();
+    assertThat(testCase.getFailureErrorLine()).isEqualTo("16");
+    assertThat(testCase.getSystemOut()).isEqualTo("Flaky test\n");
+  }
+
   private InputStreamReader getReaderForClassPathResource(String fileName) {
     return new InputStreamReader(CLASS_LOADER.getResourceAsStream(fileName));
   }
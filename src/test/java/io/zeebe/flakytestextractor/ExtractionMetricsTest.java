@@ -0,0 +1,58 @@
+package io.zeebe.flakytestextractor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.zeebe.flakytestextractor.ExtractionMetrics.Phase;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ExtractionMetricsTest {
+
+  @Rule public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  @Test
+  public void shouldPrintOneLinePerPhase() {
+    // given
+    final ExtractionMetrics sut = new ExtractionMetrics();
+    sut.recordFiles(Phase.PARSE, 2, 4096);
+    sut.recordTestCases(Phase.PARSE, 30, 3);
+    sut.finish();
+
+    // when
+    final List<String> table = sut.toTable();
+
+    // then
+    assertThat(table).hasSize(Phase.values().length + 2);
+    assertThat(table.get(0)).contains("phase", "time [ms]", "bytes read", "flakes");
+    assertThat(table.get(3)).startsWith("parse").contains(" 2 ", " 4096 ", " 30 ", " 3 ");
+    assertThat(table.get(table.size() - 1)).startsWith("total");
+  }
+
+  @Test
+  public void shouldWriteJson() throws Exception {
+    // given
+    final ExtractionMetrics sut = new ExtractionMetrics();
+    sut.recordFiles(Phase.WRITE, 1, 0);
+    sut.recordBytesWritten(Phase.WRITE, 1234);
+    sut.finish();
+    final File metricsFile = new File(tempFolder.getRoot(), "target/metrics.json");
+
+    // when
+    sut.writeJson(metricsFile, new File("C:\\reports"));
+
+    // then
+    final String json =
+        new String(Files.readAllBytes(metricsFile.toPath()), StandardCharsets.UTF_8);
+    assertThat(json)
+        .contains("\"reportDir\": \"")
+        .contains("C:\\\\reports\"")
+        .contains(
+            "\"write\": {\"nanos\": 0, \"files\": 1, \"bytesRead\": 0, \"skippedFiles\": 0,"
+                + " \"testCases\": 0, \"flakes\": 0, \"bytesWritten\": 1234}");
+  }
+}
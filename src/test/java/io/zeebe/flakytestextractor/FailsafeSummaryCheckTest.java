@@ -0,0 +1,109 @@
+package io.zeebe.flakytestextractor;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collections;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class FailsafeSummaryCheckTest {
+
+  private static final long REPORT_TIME = 1_600_000_000_000L;
+
+  @Rule public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  private File report;
+
+  @Before
+  public void setUp() throws IOException {
+    report = tempFolder.newFile("TEST-io.zeebe.ExampleIT.xml");
+    assertThat(report.setLastModified(REPORT_TIME)).isTrue();
+  }
+
+  @Test
+  public void shouldSkipReportsIfSummaryCountsZeroFlakes() throws IOException {
+    // given
+    writeSummary("failsafe-summary.xml", "<flakes>0</flakes>", REPORT_TIME + 1000);
+
+    // when + then
+    assertThat(reportsNoFlakyTests()).isTrue();
+  }
+
+  @Test
+  public void shouldNotSkipReportsIfSummaryCountsFlakes() throws IOException {
+    // given
+    writeSummary("failsafe-summary.xml", "<flakes>0</flakes>", REPORT_TIME + 1000);
+    writeSummary("failsafe-summary-other.xml", "<flakes>2</flakes>", REPORT_TIME + 1000);
+
+    // when + then
+    assertThat(reportsNoFlakyTests()).isFalse();
+  }
+
+  @Test
+  public void shouldNotSkipReportsWithoutFlakesCount() throws IOException {
+    // given
+    writeSummary("failsafe-summary.xml", "", REPORT_TIME + 1000);
+
+    // when + then
+    assertThat(reportsNoFlakyTests()).isFalse();
+  }
+
+  @Test
+  public void shouldNotSkipReportsWithoutSummary() {
+    // when + then
+    assertThat(reportsNoFlakyTests()).isFalse();
+  }
+
+  @Test
+  public void shouldNotSkipReportsThatAreNewerThanSummary() throws IOException {
+    // given
+    writeSummary("failsafe-summary.xml", "<flakes>0</flakes>", REPORT_TIME - 1000);
+
+    // when + then
+    assertThat(reportsNoFlakyTests()).isFalse();
+  }
+
+  @Test
+  public void shouldIgnoreGeneratedReportsThatAreNewerThanSummary() throws IOException {
+    // given
+    writeSummary("failsafe-summary.xml", "<flakes>0</flakes>", REPORT_TIME + 1000);
+    final File generatedReport = tempFolder.newFile("TEST-io.zeebe.ExampleIT-FLAKY.xml");
+    assertThat(generatedReport.setLastModified(REPORT_TIME + 2000)).isTrue();
+
+    // when + then
+    assertThat(
+            FailsafeSummaryCheck.reportsNoFlakyTests(
+                tempFolder.getRoot(), Collections.singleton(generatedReport), new TestLogger()))
+        .isTrue();
+  }
+
+  private boolean reportsNoFlakyTests() {
+    return FailsafeSummaryCheck.reportsNoFlakyTests(
+        tempFolder.getRoot(), Collections.emptySet(), new TestLogger());
+  }
+
+  private void writeSummary(String fileName, String flakes, long lastModified) throws IOException {
+    final File summary = new File(tempFolder.getRoot(), fileName);
+    Files.write(
+        summary.toPath(),
+        ("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                + "<failsafe-summary result=\"null\" timeout=\"false\">\n"
+                + "  <completed>12</completed>\n"
+                + "  <errors>0</errors>\n"
+                + "  <failures>0</failures>\n"
+                + "  <skipped>0</skipped>\n"
+                + "  "
+                + flakes
+                + "\n"
+                + "  <failureMessage/>\n"
+                + "</failsafe-summary>\n")
+            .getBytes(UTF_8));
+    assertThat(summary.setLastModified(lastModified)).isTrue();
+  }
+}
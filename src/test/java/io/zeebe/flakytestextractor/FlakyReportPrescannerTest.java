@@ -0,0 +1,81 @@
+package io.zeebe.flakytestextractor;
+
+import static java.nio.charset.StandardCharsets.UTF_16;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class FlakyReportPrescannerTest {
+
+  private static String[] RESSOURCES =
+      new String[] {
+        "surefire-reports/TEST-com.github.pihme.jenkinstestbed.module1.ErrorTest.xml",
+        "surefire-reports/TEST-com.github.pihme.jenkinstestbed.module1.FailingTest.xml",
+        "surefire-reports/TEST-com.github.pihme.jenkinstestbed.module1.FlakyErrorTest.xml",
+        "surefire-reports/TEST-com.github.pihme.jenkinstestbed.module1.FlakyTest.xml",
+        "surefire-reports/TEST-com.github.pihme.jenkinstestbed.module1.PassingTest.xml",
+      };
+
+  @Rule public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  private final FlakyReportPrescanner sut = new FlakyReportPrescanner();
+
+  @Before
+  public void setUpFiles() throws IOException {
+    TestUtil.copyClassPatHResourcesToFolder(RESSOURCES, tempFolder.getRoot());
+  }
+
+  @Test
+  public void shouldDetectFlakyFailure() throws IOException {
+    assertThat(sut.mayContainFlakyTests(reportFile("FlakyTest"))).isTrue();
+  }
+
+  @Test
+  public void shouldDetectFlakyError() throws IOException {
+    assertThat(sut.mayContainFlakyTests(reportFile("FlakyErrorTest"))).isTrue();
+  }
+
+  @Test
+  public void shouldSkipReportsWithoutFlakyResults() throws IOException {
+    assertThat(sut.mayContainFlakyTests(reportFile("PassingTest"))).isFalse();
+    assertThat(sut.mayContainFlakyTests(reportFile("FailingTest"))).isFalse();
+    assertThat(sut.mayContainFlakyTests(reportFile("ErrorTest"))).isFalse();
+  }
+
+  @Test
+  public void shouldDetectMarkerSpanningTwoReads() throws IOException {
+    // given
+    StringBuilder content = new StringBuilder();
+    while (content.length() < 64 * 1024 - 3) {
+      content.append(' ');
+    }
+    content.append("<flakyFailure/>");
+    File file = tempFolder.newFile("spanning.xml");
+    Files.write(file.toPath(), content.toString().getBytes(UTF_8));
+
+    // when + then
+    assertThat(sut.mayContainFlakyTests(file)).isTrue();
+  }
+
+  @Test
+  public void shouldAlwaysParseReportsInUTF16() throws IOException {
+    // given
+    File file = tempFolder.newFile("utf16.xml");
+    Files.write(file.toPath(), "<?xml version=\"1.0\" encoding=\"UTF-16\"?>".getBytes(UTF_16));
+
+    // when + then
+    assertThat(sut.mayContainFlakyTests(file)).isTrue();
+  }
+
+  private File reportFile(String testName) {
+    return new File(
+        tempFolder.getRoot(), "TEST-com.github.pihme.jenkinstestbed.module1." + testName + ".xml");
+  }
+}
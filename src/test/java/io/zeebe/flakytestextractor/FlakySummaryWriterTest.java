@@ -0,0 +1,113 @@
+package io.zeebe.flakytestextractor;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class FlakySummaryWriterTest {
+
+  @Rule public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  @Test
+  public void shouldWriteOneLinePerTestCase() throws Exception {
+    // given
+    final ExtendedReportTestSuite testSuite =
+        new ExtendedReportTestSuite().setFullClassName("io.zeebe.Test").setNumberOfTests(2);
+    testSuite
+        .getTestCases()
+        .add(
+            new ExtendedReportTestCase()
+                .setName("first (Flaky Test)")
+                .setFullClassName("io.zeebe.Test")
+                .setTime(1.5f)
+                .setFailureType("java.lang.AssertionError")
+                .setFailureMessage("expected:<\"a\"> but was:<\"b\">\n")
+                .setSystemOut("output"));
+    testSuite
+        .getTestCases()
+        .add(
+            new ExtendedReportTestCase()
+                .setName("second (Flaky Test)")
+                .setFullClassName("io.zeebe.Test")
+                .setSystemErrorRange(new ByteRange(100, 20)));
+    final File originalReport = new File(tempFolder.getRoot(), "TEST-io.zeebe.Test.xml");
+    final File generatedReport = new File(tempFolder.getRoot(), "TEST-io.zeebe.Test-FLAKY.xml");
+    final File summaryFile = new File(tempFolder.getRoot(), "target/flaky-tests.ndjson");
+
+    // when
+    try (FlakySummaryWriter sut = new FlakySummaryWriter(summaryFile, "module")) {
+      sut.add(originalReport, generatedReport, Collections.singletonList(testSuite));
+    }
+
+    // then
+    final List<String> lines = Files.readAllLines(summaryFile.toPath(), UTF_8);
+    assertThat(lines).hasSize(2);
+    assertThat(lines.get(0))
+        .isEqualTo(
+            "{\"module\": \"module\", \"testsuite\": \"io.zeebe.Test\","
+                + " \"classname\": \"io.zeebe.Test\", \"name\": \"first (Flaky Test)\","
+                + " \"time\": 1.5, \"failureType\": \"java.lang.AssertionError\","
+                + " \"failureMessage\": \"expected:<\\\"a\\\"> but was:<\\\"b\\\">\\u000a\","
+                + " \"report\": \""
+                + json(originalReport)
+                + "\", \"flakyReport\": \""
+                + json(generatedReport)
+                + "\", \"systemOut\": {\"file\": \""
+                + json(generatedReport)
+                + "\"}, \"systemErr\": null}");
+    assertThat(lines.get(1))
+        .contains("\"failureType\": null")
+        .contains("\"systemOut\": null")
+        .endsWith(
+            "\"systemErr\": {\"file\": \""
+                + json(originalReport)
+                + "\", \"position\": 100, \"length\": 20}}");
+  }
+
+  @Test
+  public void shouldWriteTimeThatIsNotFiniteAsNull() throws Exception {
+    // given
+    final ExtendedReportTestSuite testSuite =
+        new ExtendedReportTestSuite().setFullClassName("io.zeebe.Test").setNumberOfTests(2);
+    testSuite.getTestCases().add(new ExtendedReportTestCase().setName("first").setTime(Float.NaN));
+    testSuite
+        .getTestCases()
+        .add(new ExtendedReportTestCase().setName("second").setTime(Float.POSITIVE_INFINITY));
+    final File summaryFile = new File(tempFolder.getRoot(), "target/flaky-tests.ndjson");
+
+    // when
+    try (FlakySummaryWriter sut = new FlakySummaryWriter(summaryFile, "module")) {
+      sut.add(
+          new File(tempFolder.getRoot(), "TEST-io.zeebe.Test.xml"),
+          null,
+          Collections.singletonList(testSuite));
+    }
+
+    // then
+    final List<String> lines = Files.readAllLines(summaryFile.toPath(), UTF_8);
+    assertThat(lines).hasSize(2).allSatisfy(line -> assertThat(line).contains("\"time\": null,"));
+  }
+
+  @Test
+  public void shouldCreateEmptySummaryWithoutFlakyTests() throws Exception {
+    // given
+    final File summaryFile = new File(tempFolder.getRoot(), "target/flaky-tests.ndjson");
+
+    // when
+    new FlakySummaryWriter(summaryFile, null).close();
+
+    // then
+    assertThat(summaryFile).isFile().hasContent("");
+  }
+
+  private static String json(File file) {
+    return ExtractionMetrics.escapeJson(file.getAbsolutePath());
+  }
+}
@@ -10,9 +10,14 @@ import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import javax.xml.parsers.ParserConfigurationException;
+import org.apache.maven.project.MavenProject;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -60,6 +65,34 @@ public class FlakyTestExtractorPluginTest {
     inspectFlakyReport(generatedReports.get(1));
   }
 
+  @Test
+  public void testExecuteOnGeneratedReports() throws Exception {
+    // given
+    final File reportDir = tempFolder.newFolder("generated");
+    final SurefireReportGenerator generator =
+        new SurefireReportGenerator(1)
+            .setTestCases(20)
+            .setFlakyRatio(0.1)
+            .setSystemOutBytes(256)
+            .setIllegalCharacterRatio(0.01);
+    generator.writeReports(reportDir, 20);
+
+    final FlakyTestExtractorPlugin sut = new FlakyTestExtractorPlugin();
+    sut.reportDir = reportDir;
+    sut.failBuild = false;
+
+    // when
+    sut.execute();
+
+    // then
+    final File[] createdFiles = reportDir.listFiles(file -> file.getName().endsWith("-FLAKY.xml"));
+    assertThat(createdFiles).hasSize(20);
+    for (File createdFile : createdFiles) {
+      assertThat(PARSER.parse(createdFile.getAbsolutePath()).get(0).getNumberOfFailures())
+          .isEqualTo(generator.getFlakyTestCases());
+    }
+  }
+
   @Test
   public void testExecuteWithFailBuildFalse() throws Exception {
     FlakyTestExtractorPlugin sut = new FlakyTestExtractorPlugin();
@@ -87,6 +120,332 @@ public class FlakyTestExtractorPluginTest {
     assertThat(createdFiles).isEmpty();
   }
 
+  @Test
+  public void testExecuteIncrementalDoesNotRewriteOutputOfUnchangedReports() throws Exception {
+    // given
+    FlakyTestExtractorPlugin firstRun = new FlakyTestExtractorPlugin();
+    firstRun.reportDir = tempFolder.getRoot();
+    firstRun.incremental = true;
+    firstRun.incrementalCacheDir = tempFolder.newFolder("cache");
+    firstRun.failBuild = false;
+    firstRun.execute();
+
+    File flakyReport =
+        new File(
+            tempFolder.getRoot(),
+            "TEST-com.github.pihme.jenkinstestbed.module1.FlakyTest-FLAKY.xml");
+    Files.write(flakyReport.toPath(), "unchanged".getBytes(StandardCharsets.UTF_8));
+
+    FlakyTestExtractorPlugin secondRun = new FlakyTestExtractorPlugin();
+    secondRun.reportDir = tempFolder.getRoot();
+    secondRun.incremental = true;
+    secondRun.incrementalCacheDir = firstRun.incrementalCacheDir;
+
+    // when + then
+    assertThatThrownBy(secondRun::execute).hasMessage("Flaky tests encountered");
+    assertThat(flakyReport).hasContent("unchanged");
+  }
+
+  @Test
+  public void testExecuteIncrementalRewritesMissingOutput() throws Exception {
+    // given
+    FlakyTestExtractorPlugin firstRun = new FlakyTestExtractorPlugin();
+    firstRun.reportDir = tempFolder.getRoot();
+    firstRun.incremental = true;
+    firstRun.incrementalCacheDir = tempFolder.newFolder("cache");
+    firstRun.failBuild = false;
+    firstRun.execute();
+
+    File flakyReport =
+        new File(
+            tempFolder.getRoot(),
+            "TEST-com.github.pihme.jenkinstestbed.module1.FlakyTest-FLAKY.xml");
+    assertThat(flakyReport.delete()).isTrue();
+
+    // when
+    firstRun.execute();
+
+    // then
+    inspectFlakyReport(flakyReport);
+  }
+
+  @Test
+  public void testExecuteRecordsGeneratedReportsInManifest() throws Exception {
+    // given
+    FlakyTestExtractorPlugin sut = new FlakyTestExtractorPlugin();
+    sut.reportDir = tempFolder.getRoot();
+    sut.failBuild = false;
+
+    // when
+    sut.execute();
+    sut.execute();
+
+    // then
+    File manifest = new File(tempFolder.getRoot(), GeneratedReportsManifest.MANIFEST_FILE_NAME);
+    assertThat(Files.readAllLines(manifest.toPath()))
+        .containsExactly(
+            "TEST-com.github.pihme.jenkinstestbed.module1.FlakyErrorTest-FLAKY.xml",
+            "TEST-com.github.pihme.jenkinstestbed.module1.FlakyTest-FLAKY.xml");
+    assertThat(tempFolder.getRoot().listFiles(file -> file.getName().endsWith("-FLAKY.xml")))
+        .hasSize(2);
+  }
+
+  @Test
+  public void testExecuteDeletesStaleGeneratedReports() throws Exception {
+    // given
+    FlakyTestExtractorPlugin sut = new FlakyTestExtractorPlugin();
+    sut.reportDir = tempFolder.getRoot();
+    sut.failBuild = false;
+    sut.execute();
+
+    // the flaky test passes in the next run
+    File flakyErrorTest =
+        new File(
+            tempFolder.getRoot(),
+            "TEST-com.github.pihme.jenkinstestbed.module1.FlakyErrorTest.xml");
+    assertThat(flakyErrorTest.delete()).isTrue();
+
+    // when
+    sut.execute();
+
+    // then
+    File[] createdFiles =
+        tempFolder.getRoot().listFiles(file -> file.getName().endsWith("-FLAKY.xml"));
+    assertThat(createdFiles)
+        .extracting(File::getName)
+        .containsExactly("TEST-com.github.pihme.jenkinstestbed.module1.FlakyTest-FLAKY.xml");
+  }
+
+  @Test
+  public void testExecuteWritesMetrics() throws Exception {
+    // given
+    FlakyTestExtractorPlugin sut = new FlakyTestExtractorPlugin();
+    sut.reportDir = tempFolder.getRoot();
+    sut.failBuild = false;
+    sut.writeMetrics = true;
+    sut.metricsFile = new File(tempFolder.newFolder("target"), "metrics.json");
+
+    // when
+    sut.execute();
+
+    // then
+    assertThat(sut.metricsFile)
+        .content()
+        .contains("\"scan\": {\"nanos\": ")
+        .contains("\"files\": 5,")
+        .contains("\"flakes\": 2,");
+  }
+
+  @Test
+  public void testExecuteConsolidatesReports() throws Exception {
+    // given
+    FlakyTestExtractorPlugin sut = new FlakyTestExtractorPlugin();
+    sut.reportDir = tempFolder.getRoot();
+    sut.failBuild = false;
+    sut.consolidateReports = true;
+
+    // when
+    sut.execute();
+
+    // then
+    File[] createdFiles =
+        tempFolder.getRoot().listFiles(file -> file.getName().endsWith("-FLAKY.xml"));
+    assertThat(createdFiles)
+        .extracting(File::getName)
+        .containsExactly(FlakyTestExtractorPlugin.DEFAULT_CONSOLIDATED_REPORT_FILE_NAME);
+    assertThat(createdFiles[0]).content().contains("<testsuites>").endsWith("</testsuites>");
+
+    try (InputStreamReader reader = getReaderForFile(createdFiles[0])) {
+      assertThat(PARSER.parse(reader))
+          .extracting(ExtendedReportTestSuite::getName)
+          .containsExactlyInAnyOrder("FlakyErrorTest", "FlakyTest");
+    }
+
+    File manifest = new File(tempFolder.getRoot(), GeneratedReportsManifest.MANIFEST_FILE_NAME);
+    assertThat(Files.readAllLines(manifest.toPath()))
+        .containsExactly(FlakyTestExtractorPlugin.DEFAULT_CONSOLIDATED_REPORT_FILE_NAME);
+  }
+
+  @Test
+  public void testExecuteConsolidatesReportsIntoConfiguredFile() throws Exception {
+    // given
+    FlakyTestExtractorPlugin sut = new FlakyTestExtractorPlugin();
+    sut.reportDir = tempFolder.getRoot();
+    sut.consolidateReports = true;
+    sut.consolidatedReportFile = new File(tempFolder.getRoot(), "flaky/all-FLAKY.xml");
+
+    // when + then
+    assertThatThrownBy(sut::execute).hasMessage("Flaky tests encountered");
+    assertThat(sut.consolidatedReportFile).isFile();
+    assertThat(tempFolder.getRoot().listFiles(file -> file.getName().endsWith("-FLAKY.xml")))
+        .isEmpty();
+  }
+
+  @Test
+  public void testExecuteDeletesStaleConsolidatedReport() throws Exception {
+    // given
+    FlakyTestExtractorPlugin sut = new FlakyTestExtractorPlugin();
+    sut.reportDir = tempFolder.getRoot();
+    sut.failBuild = false;
+    sut.consolidateReports = true;
+    sut.execute();
+
+    // none of the tests is flaky in the next run
+    for (String flakyTest : new String[] {"FlakyErrorTest", "FlakyTest"}) {
+      File report =
+          new File(
+              tempFolder.getRoot(),
+              "TEST-com.github.pihme.jenkinstestbed.module1." + flakyTest + ".xml");
+      assertThat(report.delete()).isTrue();
+    }
+
+    // when
+    sut.execute();
+
+    // then
+    assertThat(tempFolder.getRoot().listFiles(file -> file.getName().endsWith("-FLAKY.xml")))
+        .isEmpty();
+  }
+
+  @Test
+  public void testExecuteWritesSummary() throws Exception {
+    // given
+    FlakyTestExtractorPlugin sut = new FlakyTestExtractorPlugin();
+    sut.reportDir = tempFolder.getRoot();
+    sut.failBuild = false;
+    sut.writeSummary = true;
+    sut.summaryFile = new File(tempFolder.newFolder("target"), "flaky-tests.ndjson");
+    sut.moduleName = "module1";
+
+    // when
+    sut.execute();
+
+    // then
+    List<String> lines = Files.readAllLines(sut.summaryFile.toPath(), StandardCharsets.UTF_8);
+    assertThat(lines).hasSize(2);
+    assertThat(lines)
+        .allSatisfy(line -> assertThat(line).startsWith("{\"module\": \"module1\", ").endsWith("}"))
+        .anySatisfy(
+            line ->
+                assertThat(line)
+                    .contains("\"name\": \"flakyTest (Flaky Test)\"")
+                    .contains("-FLAKY.xml\"}"));
+  }
+
+  @Test
+  public void testExecuteIncrementalWritesSummaryOfUnchangedReports() throws Exception {
+    // given
+    FlakyTestExtractorPlugin firstRun = new FlakyTestExtractorPlugin();
+    firstRun.reportDir = tempFolder.getRoot();
+    firstRun.failBuild = false;
+    firstRun.incremental = true;
+    firstRun.incrementalCacheDir = tempFolder.newFolder("cache");
+    firstRun.writeSummary = true;
+    firstRun.summaryFile = new File(tempFolder.newFolder("target"), "flaky-tests.ndjson");
+    firstRun.execute();
+
+    FlakyTestExtractorPlugin secondRun = new FlakyTestExtractorPlugin();
+    secondRun.reportDir = tempFolder.getRoot();
+    secondRun.incremental = true;
+    secondRun.incrementalCacheDir = firstRun.incrementalCacheDir;
+    secondRun.writeSummary = true;
+    secondRun.summaryFile = firstRun.summaryFile;
+
+    // when + then
+    assertThatThrownBy(secondRun::execute).hasMessage("Flaky tests encountered");
+    assertThat(Files.readAllLines(secondRun.summaryFile.toPath(), StandardCharsets.UTF_8))
+        .hasSize(2);
+  }
+
+  @Test
+  public void testExecuteWritesOnlySelectedOutputSinks() throws Exception {
+    // given
+    FlakyTestExtractorPlugin sut = new FlakyTestExtractorPlugin();
+    sut.reportDir = tempFolder.getRoot();
+    sut.outputSinks = Collections.singletonList(OutputSinkType.SUMMARY);
+    sut.summaryFile = new File(tempFolder.newFolder("target"), "flaky-tests.ndjson");
+
+    // when + then
+    assertThatThrownBy(sut::execute).hasMessage("Flaky tests encountered");
+    assertThat(tempFolder.getRoot().listFiles(file -> file.getName().endsWith("-FLAKY.xml")))
+        .isEmpty();
+    assertThat(Files.readAllLines(sut.summaryFile.toPath(), StandardCharsets.UTF_8))
+        .hasSize(2)
+        .allSatisfy(line -> assertThat(line).contains("\"flakyReport\": null"));
+    assertThat(new File(tempFolder.getRoot(), GeneratedReportsManifest.MANIFEST_FILE_NAME))
+        .doesNotExist();
+  }
+
+  @Test
+  public void testExecuteSkipsReportsIfFailsafeSummaryCountsNoFlakes() throws Exception {
+    // given
+    File summary = new File(tempFolder.getRoot(), "failsafe-summary.xml");
+    Files.write(
+        summary.toPath(),
+        "<failsafe-summary><completed>5</completed><flakes>0</flakes></failsafe-summary>"
+            .getBytes(StandardCharsets.UTF_8));
+    assertThat(summary.setLastModified(System.currentTimeMillis() + 60_000)).isTrue();
+
+    FlakyTestExtractorPlugin sut = new FlakyTestExtractorPlugin();
+    sut.reportDir = tempFolder.getRoot();
+
+    // when + then
+    assertThatCode(sut::execute).doesNotThrowAnyException();
+    assertThat(tempFolder.getRoot().listFiles(file -> file.getName().endsWith("-FLAKY.xml")))
+        .isEmpty();
+  }
+
+  @Test
+  public void testExecutePublishesResultsInProject() throws Exception {
+    // given
+    FlakyTestExtractorPlugin sut = new FlakyTestExtractorPlugin();
+    sut.reportDir = tempFolder.getRoot();
+    sut.failBuild = false;
+    sut.publishResults = true;
+    sut.project = new MavenProject();
+
+    // when
+    sut.execute();
+
+    // then
+    Map<String, Map<String, Object>> resultsByReportDir = PublishedResults.lookup(sut.project);
+    assertThat(resultsByReportDir).containsOnlyKeys(tempFolder.getRoot().getAbsolutePath());
+
+    Map<String, Object> results = resultsByReportDir.get(tempFolder.getRoot().getAbsolutePath());
+    assertThat((Map<?, ?>) results.get(PublishedResults.TEST_SUITES)).hasSize(5);
+    @SuppressWarnings("unchecked")
+    List<Map<String, Object>> flakyTests =
+        (List<Map<String, Object>>) results.get(PublishedResults.FLAKY_TESTS);
+    assertThat(flakyTests)
+        .extracting(flakyTest -> flakyTest.get("name"))
+        .containsExactly("failNever (Flaky Test)", "flakyTest (Flaky Test)");
+  }
+
+  @Test
+  public void testExecutePublishesResultsIfFailsafeSummaryCountsNoFlakes() throws Exception {
+    // given
+    File summary = new File(tempFolder.getRoot(), "failsafe-summary.xml");
+    Files.write(
+        summary.toPath(),
+        "<failsafe-summary><completed>5</completed><flakes>0</flakes></failsafe-summary>"
+            .getBytes(StandardCharsets.UTF_8));
+    assertThat(summary.setLastModified(System.currentTimeMillis() + 60_000)).isTrue();
+
+    FlakyTestExtractorPlugin sut = new FlakyTestExtractorPlugin();
+    sut.reportDir = tempFolder.getRoot();
+    sut.failBuild = false;
+    sut.publishResults = true;
+    sut.project = new MavenProject();
+
+    // when
+    sut.execute();
+
+    // then
+    Map<String, Object> results =
+        PublishedResults.lookup(sut.project).get(tempFolder.getRoot().getAbsolutePath());
+    assertThat((Map<?, ?>) results.get(PublishedResults.TEST_SUITES)).hasSize(5);
+  }
+
   private void inspectFlakyErrorReport(File flakyErrorReport)
       throws ParserConfigurationException, SAXException, IOException, FileNotFoundException {
 
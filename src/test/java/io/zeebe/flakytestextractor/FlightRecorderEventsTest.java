@@ -0,0 +1,50 @@
+package io.zeebe.flakytestextractor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assume.assumeTrue;
+
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Arrays;
+import org.junit.Test;
+
+public class FlightRecorderEventsTest {
+
+  private static final Class<?>[] EVENTS = {
+    ScanEvent.class, ParseEvent.class, TransformEvent.class, WriteEvent.class
+  };
+
+  @Test
+  public void shouldNotDependOnFlightRecorderOnJava8() {
+    for (Class<?> event : EVENTS) {
+      assertThat(event.getSuperclass()).isEqualTo(Object.class);
+    }
+  }
+
+  @Test
+  public void shouldPackageFlightRecorderEventsForJava11() throws Exception {
+    // given
+    assumeTrue(ClassLoader.getSystemResource("jdk/jfr/Event.class") != null);
+    final URL java11Classes =
+        FlightRecorderEventsTest.class.getClassLoader().getResource("META-INF/versions/11/");
+    assertThat(java11Classes).describedAs("output of the Java 11 compilation").isNotNull();
+
+    // when
+    try (URLClassLoader classLoader = new URLClassLoader(new URL[] {java11Classes}, null)) {
+
+      // then
+      for (Class<?> event : EVENTS) {
+        final Class<?> java11Event = classLoader.loadClass(event.getName());
+        assertThat(java11Event.getSuperclass().getName()).isEqualTo("jdk.jfr.Event");
+        assertThat(java11Event.getMethods())
+            .extracting("name")
+            .contains(
+                Arrays.stream(event.getDeclaredMethods())
+                    .filter(method -> !method.isSynthetic())
+                    .map(Method::getName)
+                    .toArray());
+      }
+    }
+  }
+}
@@ -0,0 +1,116 @@
+package io.zeebe.flakytestextractor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Runs many executions of the plugin at the same time, like a parallel Maven build does for the
+ * modules of a reactor, and compares their output with that of sequential executions.
+ */
+public class ParallelBuildTest {
+
+  private static final int MODULES = 16;
+
+  private static final int REPORTS_PER_MODULE = 20;
+
+  @Rule public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  @Test
+  public void shouldWriteSameReportsAsSequentialExecutions() throws Exception {
+    // given
+    final List<File> sequentialModules = writeModules(tempFolder.newFolder("sequential"));
+    final List<File> parallelModules = writeModules(tempFolder.newFolder("parallel"));
+
+    for (File reportDir : sequentialModules) {
+      createPlugin(reportDir).execute();
+    }
+
+    // when
+    final CyclicBarrier start = new CyclicBarrier(MODULES);
+    final ExecutorService executor = Executors.newFixedThreadPool(MODULES);
+    try {
+      final List<Future<Void>> executions = new ArrayList<>();
+      for (File reportDir : parallelModules) {
+        final FlakyTestExtractorPlugin plugin = createPlugin(reportDir);
+        final Callable<Void> execution =
+            () -> {
+              start.await();
+              plugin.execute();
+              return null;
+            };
+        executions.add(executor.submit(execution));
+      }
+      for (Future<Void> execution : executions) {
+        execution.get(60, TimeUnit.SECONDS);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    // then
+    for (int module = 0; module < MODULES; module++) {
+      final File[] expectedReports = listGeneratedReports(sequentialModules.get(module));
+      final File[] actualReports = listGeneratedReports(parallelModules.get(module));
+      assertThat(expectedReports).isNotEmpty();
+      assertThat(actualReports).extracting(File::getName).containsExactly(namesOf(expectedReports));
+
+      for (int i = 0; i < expectedReports.length; i++) {
+        assertThat(Files.readAllBytes(actualReports[i].toPath()))
+            .describedAs(actualReports[i].getPath())
+            .isEqualTo(Files.readAllBytes(expectedReports[i].toPath()));
+      }
+    }
+  }
+
+  private static List<File> writeModules(File root) throws Exception {
+    final List<File> reportDirs = new ArrayList<>();
+    for (int module = 0; module < MODULES; module++) {
+      final File reportDir = new File(root, "module" + module + "/target/surefire-reports");
+      assertThat(reportDir.mkdirs()).isTrue();
+      new SurefireReportGenerator(module)
+          .setTestCases(20)
+          .setFlakyRatio(0.1)
+          .setSystemOutBytes(512)
+          .setIllegalCharacterRatio(0.01)
+          .writeReports(reportDir, REPORTS_PER_MODULE);
+      reportDirs.add(reportDir);
+    }
+    return reportDirs;
+  }
+
+  private static FlakyTestExtractorPlugin createPlugin(File reportDir) {
+    final FlakyTestExtractorPlugin plugin = new FlakyTestExtractorPlugin();
+    plugin.reportDir = reportDir;
+    plugin.failBuild = false;
+    plugin.parserThreads = 2;
+    return plugin;
+  }
+
+  private static File[] listGeneratedReports(File reportDir) {
+    final File[] reports = reportDir.listFiles(file -> file.getName().endsWith("-FLAKY.xml"));
+    Arrays.sort(reports);
+    return reports;
+  }
+
+  private static String[] namesOf(File[] files) {
+    final String[] names = new String[files.length];
+    for (int i = 0; i < files.length; i++) {
+      names[i] = files[i].getName();
+    }
+    return names;
+  }
+}
@@ -0,0 +1,253 @@
+package io.zeebe.flakytestextractor;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ReportContentLocatorTest {
+
+  @Rule public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  @Test
+  public void shouldLocateContentOfFlakyTestCases() throws Exception {
+    // given
+    final File report = tempFolder.newFile("TEST-io.zeebe.Test.xml");
+    Files.write(
+        report.toPath(),
+        ("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                + "<testsuite name=\"io.zeebe.Test\" time=\"1\">\n"
+                + "  <!-- <testcase> -->\n"
+                + "  <testcase name=\"passing\" classname=\"io.zeebe.Test\" time=\"0\">\n"
+                + "    <system-out><![CDATA[passed]]></system-out>\n"
+                + "  </testcase>\n"
+                + "  <testcase name=\"flaky\" classname=\"io.zeebe.Test\" time=\"0\">\n"
+                + "    <flakyFailure message=\"a > b\" type=\"java.lang.AssertionError\">\n"
+                + "      <stackTrace>   </stackTrace>\n"
+                + "      <system-out><![CDATA[first run]]></system-out>\n"
+                + "    </flakyFailure>\n"
+                + "    <system-out><![CDATA[a]]]]><![CDATA[>b]]></system-out>\n"
+                + "    <system-err/>\n"
+                + "  </testcase>\n"
+                + "</testsuite>\n")
+            .getBytes(UTF_8));
+
+    // when
+    final List<ExtendedReportTestSuite> testSuites =
+        new ExtendedTestSuiteXMLParser(new TestLogger())
+            .setPassthrough(true)
+            .parse(report.getAbsolutePath());
+
+    // then
+    final ExtendedReportTestCase flakyTestCase = testSuites.get(0).getTestCases().get(1);
+    assertThat(flakyTestCase.isFlake()).isTrue();
+    assertThat(flakyTestCase.getSystemOut()).isNull();
+    assertThat(read(report, flakyTestCase.getSystemOutRange()))
+        .isEqualTo("<![CDATA[a]]]]><![CDATA[>b]]>");
+    assertThat(flakyTestCase.getFailureDetailRange()).isNull();
+    assertThat(flakyTestCase.getSystemErrorRange()).isNull();
+
+    final ExtendedReportTestCase passingTestCase = testSuites.get(0).getTestCases().get(0);
+    assertThat(passingTestCase.getSystemOutRange()).isNull();
+  }
+
+  @Test
+  public void shouldWriteSameReportsAsWithoutPassthrough() throws Exception {
+    // given
+    final File reportDir = tempFolder.newFolder("reports");
+    new SurefireReportGenerator(3)
+        .setTestCases(40)
+        .setFlakyRatio(0.25)
+        .setSystemOutBytes(3000)
+        .setIllegalCharacterRatio(0.01)
+        .writeReports(reportDir, 3);
+
+    for (ParserEngine parserEngine : ParserEngine.values()) {
+      // when
+      final List<ExtendedReportTestSuite> expected = extract(reportDir, parserEngine, false);
+      final List<ExtendedReportTestSuite> actual = extract(reportDir, parserEngine, true);
+
+      // then
+      assertThat(actual).hasSameSizeAs(expected);
+      for (int i = 0; i < expected.size(); i++) {
+        final List<ExtendedReportTestCase> expectedTestCases = expected.get(i).getTestCases();
+        final List<ExtendedReportTestCase> actualTestCases = actual.get(i).getTestCases();
+        assertThat(actualTestCases).hasSize(expectedTestCases.size()).isNotEmpty();
+        for (int j = 0; j < expectedTestCases.size(); j++) {
+          assertThat(describe(actualTestCases.get(j)))
+              .isEqualTo(describe(expectedTestCases.get(j)));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void shouldDecodeContentOfReportsInOtherEncodings() throws Exception {
+    // given
+    final File report = tempFolder.newFile("TEST-io.zeebe.Test.xml");
+    Files.write(
+        report.toPath(),
+        ("<?xml version=\"1.0\" encoding=\"ISO-8859-1\"?>\n"
+                + "<testsuite name=\"io.zeebe.Test\" time=\"1\">\n"
+                + "  <testcase name=\"flaky\" classname=\"io.zeebe.Test\" time=\"0\">\n"
+                + "    <flakyFailure message=\"a\" type=\"java.lang.AssertionError\">\n"
+                + "      <stackTrace><![CDATA[expected: \u00e4]]></stackTrace>\n"
+                + "    </flakyFailure>\n"
+                + "    <system-out><![CDATA[Gr\u00fc\u00dfe]]></system-out>\n"
+                + "  </testcase>\n"
+                + "</testsuite>\n")
+            .getBytes(ISO_8859_1));
+
+    for (ParserEngine parserEngine : ParserEngine.values()) {
+      final XmlReporterWriter writer =
+          new XmlReporterWriter(tempFolder.newFolder(parserEngine.name()));
+
+      // when
+      final List<ExtendedReportTestSuite> testSuites =
+          parserEngine
+              .createParser(new TestLogger())
+              .setPassthrough(true)
+              .parse(report.getAbsolutePath());
+      writer.writeXMLReport(
+          report,
+          Collections.singletonList(new ReportTransformer().transform(testSuites.get(0)).get()));
+
+      // then
+      final ExtendedReportTestCase testCase = testSuites.get(0).getTestCases().get(0);
+      assertThat(testCase.getSystemOutRange()).describedAs(parserEngine.name()).isNull();
+      assertThat(testCase.getSystemOut()).isEqualTo("Gr\u00fc\u00dfe");
+
+      final ExtendedReportTestCase writtenTestCase =
+          new ExtendedTestSuiteXMLParser(new TestLogger())
+              .parse(writer.getFlakyReportFile(report).getAbsolutePath())
+              .get(0)
+              .getTestCases()
+              .get(0);
+      assertThat(writtenTestCase.getFailureDetail()).isEqualTo("expected: \u00e4");
+      assertThat(writtenTestCase.getSystemOut()).isEqualTo("Gr\u00fc\u00dfe");
+    }
+  }
+
+  @Test
+  public void shouldResolveEntitiesOfInternalSubset() throws Exception {
+    // given
+    final File report = tempFolder.newFile("TEST-io.zeebe.Test.xml");
+    Files.write(
+        report.toPath(),
+        ("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                + "<!DOCTYPE testsuite [\n"
+                + "  <!ENTITY output \"a > b\">\n"
+                + "]>\n"
+                + "<testsuite name=\"io.zeebe.Test\" time=\"1\">\n"
+                + "  <testcase name=\"flaky\" classname=\"io.zeebe.Test\" time=\"0\">\n"
+                + "    <flakyFailure message=\"a\" type=\"java.lang.AssertionError\">\n"
+                + "      <stackTrace>expected: &output;</stackTrace>\n"
+                + "    </flakyFailure>\n"
+                + "    <system-out>&output;</system-out>\n"
+                + "  </testcase>\n"
+                + "</testsuite>\n")
+            .getBytes(UTF_8));
+
+    for (ParserEngine parserEngine : ParserEngine.values()) {
+      final XmlReporterWriter writer =
+          new XmlReporterWriter(tempFolder.newFolder(parserEngine.name()));
+
+      // when
+      final List<ExtendedReportTestSuite> testSuites =
+          parserEngine
+              .createParser(new TestLogger())
+              .setPassthrough(true)
+              .parse(report.getAbsolutePath());
+      writer.writeXMLReport(
+          report,
+          Collections.singletonList(new ReportTransformer().transform(testSuites.get(0)).get()));
+
+      // then
+      final ExtendedReportTestCase testCase = testSuites.get(0).getTestCases().get(0);
+      assertThat(testCase.getSystemOutRange()).describedAs(parserEngine.name()).isNull();
+      assertThat(testCase.getFailureDetailRange()).describedAs(parserEngine.name()).isNull();
+
+      final ExtendedReportTestCase writtenTestCase =
+          new ExtendedTestSuiteXMLParser(new TestLogger())
+              .parse(writer.getFlakyReportFile(report).getAbsolutePath())
+              .get(0)
+              .getTestCases()
+              .get(0);
+      assertThat(writtenTestCase.getFailureDetail()).isEqualTo("expected: a > b");
+      assertThat(writtenTestCase.getSystemOut()).isEqualTo("a > b");
+    }
+  }
+
+  @Test
+  public void shouldCopyContentOfUtf8AndAsciiReportsOnly() {
+    // when + then
+    assertThat(ReportContentLocator.isCopyableAsUtf8("UTF-8")).isTrue();
+    assertThat(ReportContentLocator.isCopyableAsUtf8("utf8")).isTrue();
+    assertThat(ReportContentLocator.isCopyableAsUtf8("us-ascii")).isTrue();
+    assertThat(ReportContentLocator.isCopyableAsUtf8("ISO-8859-1")).isFalse();
+    assertThat(ReportContentLocator.isCopyableAsUtf8("UTF-16")).isFalse();
+    assertThat(ReportContentLocator.isCopyableAsUtf8("no such encoding")).isFalse();
+    assertThat(ReportContentLocator.isCopyableAsUtf8(null)).isFalse();
+  }
+
+  /** Parses, transforms and writes the reports and parses the written reports again. */
+  private List<ExtendedReportTestSuite> extract(
+      File reportDir, ParserEngine parserEngine, boolean passthrough) throws Exception {
+    final File outputDir =
+        tempFolder.newFolder(parserEngine + (passthrough ? "-passthrough" : "-decoded"));
+    final XmlReporterWriter writer = new XmlReporterWriter(outputDir);
+    final ReportTransformer transformer = new ReportTransformer();
+    final List<File> writtenReports = new ArrayList<>();
+
+    new ExtendedSurefireReportParser(
+            Collections.singletonList(reportDir), Locale.US, new TestLogger())
+        .setParserEngine(parserEngine)
+        .setCaptureOutputOfFlakyTestsOnly(true)
+        .setPassthrough(passthrough)
+        .parseXMLReportFiles(
+            (reportFile, testSuites) -> {
+              for (ExtendedReportTestCase testCase : testSuites.get(0).getTestCases()) {
+                if (testCase.isFlake()) {
+                  assertThat(testCase.getSystemOutRange() != null).isEqualTo(passthrough);
+                }
+              }
+              writer.writeXMLReport(
+                  reportFile,
+                  Collections.singletonList(transformer.transform(testSuites.get(0)).get()));
+              writtenReports.add(writer.getFlakyReportFile(reportFile));
+            });
+
+    final List<ExtendedReportTestSuite> writtenTestSuites = new ArrayList<>();
+    for (File writtenReport : writtenReports) {
+      writtenTestSuites.addAll(
+          new ExtendedTestSuiteXMLParser(new TestLogger()).parse(writtenReport.getAbsolutePath()));
+    }
+    return writtenTestSuites;
+  }
+
+  private static List<String> describe(ExtendedReportTestCase testCase) {
+    return Arrays.asList(
+        testCase.getFullName(),
+        testCase.getFailureMessage(),
+        testCase.getFailureType(),
+        testCase.getFailureDetail(),
+        testCase.getSystemOut(),
+        testCase.getSystemError());
+  }
+
+  private static String read(File file, ByteRange range) throws IOException {
+    final byte[] bytes = Files.readAllBytes(file.toPath());
+    return new String(bytes, (int) range.getPosition(), (int) range.getLength(), UTF_8);
+  }
+}
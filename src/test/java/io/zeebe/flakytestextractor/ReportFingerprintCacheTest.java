@@ -0,0 +1,107 @@
+package io.zeebe.flakytestextractor;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.zeebe.flakytestextractor.ReportFingerprintCache.Fingerprint;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ReportFingerprintCacheTest {
+
+  @Rule public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  private File cacheFile;
+
+  private File reportFile;
+
+  @Before
+  public void setUp() throws IOException {
+    cacheFile = new File(tempFolder.getRoot(), "cache/reports.cache");
+    reportFile = tempFolder.newFile("TEST-Report.xml");
+    Files.write(reportFile.toPath(), "<testsuite/>".getBytes(UTF_8));
+  }
+
+  @Test
+  public void shouldReturnCachedNumberOfFlakesForUnchangedReport() throws IOException {
+    // given
+    final ReportFingerprintCache cache = load(true);
+    cache.update(reportFile, Fingerprint.of(reportFile), 2);
+    cache.save();
+
+    // when
+    final Integer numberOfFlakes = load(true).lookup(reportFile, Fingerprint.of(reportFile));
+
+    // then
+    assertThat(numberOfFlakes).isEqualTo(2);
+  }
+
+  @Test
+  public void shouldNotReturnCachedOutcomeOfChangedReport() throws IOException {
+    // given
+    final ReportFingerprintCache cache = load(true);
+    final long lastModified = reportFile.lastModified();
+    cache.update(reportFile, Fingerprint.of(reportFile), 0);
+    cache.save();
+
+    // same size and modification time, different content
+    Files.write(reportFile.toPath(), "<testcase/>".getBytes(UTF_8));
+    assertThat(reportFile.setLastModified(lastModified)).isTrue();
+
+    // when
+    final Integer numberOfFlakes = load(true).lookup(reportFile, Fingerprint.of(reportFile));
+
+    // then
+    assertThat(numberOfFlakes).isNull();
+  }
+
+  @Test
+  public void shouldNotReturnCachedOutcomeIfOutputOfFlakyReportIsMissing() throws IOException {
+    // given
+    final ReportFingerprintCache cache = load(true);
+    cache.update(reportFile, Fingerprint.of(reportFile), 1);
+    cache.save();
+
+    // when
+    final Integer numberOfFlakes = load(false).lookup(reportFile, Fingerprint.of(reportFile));
+
+    // then
+    assertThat(numberOfFlakes).isNull();
+  }
+
+  @Test
+  public void shouldDropEntriesThatWereNotLookedUp() throws IOException {
+    // given
+    final ReportFingerprintCache cache = load(true);
+    cache.update(reportFile, Fingerprint.of(reportFile), 0);
+    cache.save();
+
+    // when
+    load(true).save();
+
+    // then
+    assertThat(load(true).lookup(reportFile, Fingerprint.of(reportFile))).isNull();
+  }
+
+  @Test
+  public void shouldIgnoreUnreadableCacheFile() throws IOException {
+    // given
+    Files.createDirectories(cacheFile.getParentFile().toPath());
+    Files.write(cacheFile.toPath(), "something else\n".getBytes(UTF_8));
+
+    // when
+    final Integer numberOfFlakes = load(true).lookup(reportFile, Fingerprint.of(reportFile));
+
+    // then
+    assertThat(numberOfFlakes).isNull();
+  }
+
+  private ReportFingerprintCache load(boolean outputExists) {
+    return ReportFingerprintCache.load(cacheFile, file -> outputExists, new TestLogger());
+  }
+}
@@ -0,0 +1,83 @@
+package io.zeebe.flakytestextractor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Runs the plugin on report directories and report files of production size. Not part of the
+ * default build, run with the {@code scale-tests} profile.
+ */
+public class ScaleTest {
+
+  @Rule public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  @Test
+  public void shouldExtractFlakyTestsFromManyReports() throws Exception {
+    // given
+    final int reports = 1_000;
+    new SurefireReportGenerator(1)
+        .setTestCases(10)
+        .setFlakyRatio(0.1)
+        .setSystemOutBytes(256)
+        .writeReports(tempFolder.getRoot(), reports);
+
+    final FlakyTestExtractorPlugin sut = new FlakyTestExtractorPlugin();
+    sut.reportDir = tempFolder.getRoot();
+    sut.failBuild = false;
+
+    // when
+    sut.execute();
+
+    // then
+    final File[] createdFiles =
+        tempFolder.getRoot().listFiles(file -> file.getName().endsWith("-FLAKY.xml"));
+    assertThat(createdFiles).hasSize(reports);
+  }
+
+  @Test
+  public void shouldExtractFlakyTestsFromLargeReport() throws Exception {
+    // given
+    final SurefireReportGenerator generator =
+        new SurefireReportGenerator(2)
+            .setTestCases(2_000)
+            .setFlakyRatio(0.05)
+            .setSystemOutBytes(16 * 1024)
+            .setIllegalCharacterRatio(0.001);
+    final File report = generator.writeReport(tempFolder.getRoot(), 0);
+    assertThat(report.length()).isGreaterThan(32L * 1024 * 1024);
+
+    final ExtendedSurefireReportParser parser =
+        new ExtendedSurefireReportParser(
+                Collections.singletonList(tempFolder.getRoot()), Locale.US, new TestLogger())
+            .setCaptureOutputOfFlakyTestsOnly(true);
+    final XmlReporterWriter writer = new XmlReporterWriter(tempFolder.getRoot());
+    final ReportTransformer transformer = new ReportTransformer();
+    final AtomicInteger flakyTestCases = new AtomicInteger();
+
+    // when
+    parser.parseXMLReportFiles(
+        (reportFile, testSuites) -> {
+          final List<ExtendedReportTestSuite> flakyTestSuites =
+              Collections.singletonList(transformer.transform(testSuites.get(0)).get());
+          flakyTestCases.addAndGet(flakyTestSuites.get(0).getTestCases().size());
+          writer.writeXMLReport(reportFile, flakyTestSuites);
+        });
+
+    // then
+    assertThat(flakyTestCases.get()).isEqualTo(generator.getFlakyTestCases());
+
+    final List<ExtendedReportTestSuite> writtenTestSuites =
+        new ExtendedTestSuiteXMLParser(new TestLogger())
+            .parse(writer.getFlakyReportFile(report).getAbsolutePath());
+    assertThat(writtenTestSuites.get(0).getNumberOfFailures())
+        .isEqualTo(generator.getFlakyTestCases());
+  }
+}
@@ -0,0 +1,100 @@
+package io.zeebe.flakytestextractor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.util.List;
+import org.junit.Test;
+import org.xml.sax.SAXException;
+
+public class StaxTestSuiteXMLParserTest {
+  private static final ClassLoader CLASS_LOADER = Thread.currentThread().getContextClassLoader();
+
+  private final StaxTestSuiteXMLParser sut = new StaxTestSuiteXMLParser(new TestLogger());
+
+  @Test
+  public void testParseOutputOfFailingTest() throws SAXException, IOException {
+    try (InputStreamReader reader =
+        getReaderForClassPathResource(
+            "surefire-reports/TEST-com.github.pihme.jenkinstestbed.module1.FailingTest.xml")) {
+      List<ExtendedReportTestSuite> testSuites = sut.parse(reader);
+
+      assertThat(testSuites).hasSize(1);
+
+      ExtendedReportTestSuite testSuite = testSuites.get(0);
+      assertThat(testSuite.getNumberOfTests()).isEqualTo(1);
+      assertThat(testSuite.getNumberOfFailures()).isEqualTo(1);
+      assertThat(testSuite.getNumberOfErrors()).isEqualTo(0);
+      assertThat(testSuite.getNumberOfFlakes()).isEqualTo(0);
+
+      ExtendedReportTestCase testCase = testSuite.getTestCases().get(0);
+      assertThat(testCase.isFlake()).isFalse();
+      assertThat(testCase.getSystemOut()).isEqualTo("Failing test\n");
+    }
+  }
+
+  @Test
+  public void testParseOutputOfFlakyError() throws SAXException, IOException {
+    try (InputStreamReader reader =
+        getReaderForClassPathResource(
+            "surefire-reports/TEST-com.github.pihme.jenkinstestbed.module1.FlakyErrorTest.xml")) {
+      List<ExtendedReportTestSuite> testSuites = sut.parse(reader);
+
+      assertThat(testSuites).hasSize(1);
+
+      ExtendedReportTestSuite testSuite = testSuites.get(0);
+      assertThat(testSuite.getName()).isEqualTo("FlakyErrorTest");
+      assertThat(testSuite.getNumberOfFlakes()).isEqualTo(1);
+      assertThat(testSuite.getTimeElapsed()).isEqualTo(0.001f);
+
+      ExtendedReportTestCase testCase = testSuite.getTestCases().get(0);
+      assertThat(testCase.isFlake()).isTrue();
+      assertThat(testCase.getName()).isEqualTo("failNever");
+      assertThat(testCase.getFailureType()).isEqualTo("java.lang.RuntimeException");
+      assertThat(testCase.getFailureDetail())
+          .isEqualTo(
+              "java.lang.RuntimeException: Oops, something happeeed\n"
+                  + "	at com.github.pihme.jenkinstestbed.module1.FlakyErrorTest.setUp(FlakyErrorTest.java:16)\n");
+      assertThat(testCase.getSystemOut()).isEqualTo("Flaky error\n");
+    }
+  }
+
+  @Test
+  public void testSkipOutputOfTestsThatAreNotFlakyWithSelectiveCapture()
+      throws SAXException, IOException {
+    sut.setCaptureOutputOfFlakyTestsOnly(true);
+
+    try (InputStreamReader reader =
+        getReaderForClassPathResource(
+            "surefire-reports/TEST-com.github.pihme.jenkinstestbed.module1.PassingTest.xml")) {
+      List<ExtendedReportTestSuite> testSuites = sut.parse(reader);
+
+      ExtendedReportTestCase testCase = testSuites.get(0).getTestCases().get(0);
+      assertThat(testCase.isSuccessful()).isTrue();
+      assertThat(testCase.getSystemOut()).isNull();
+    }
+  }
+
+  @Test
+  public void testStopAtFailsafeSummary() throws SAXException, IOException {
+    List<ExtendedReportTestSuite> testSuites =
+        sut.parse(
+            new StringReader(
+                "<failsafe-summary result=\"255\"><completed>1</completed></failsafe-summary>"));
+
+    assertThat(testSuites).isEmpty();
+  }
+
+  @Test
+  public void testRejectMalformedReport() {
+    assertThatThrownBy(() -> sut.parse(new StringReader("<testsuite time=\"1\"><testcase>")))
+        .isInstanceOf(SAXException.class);
+  }
+
+  private InputStreamReader getReaderForClassPathResource(String fileName) {
+    return new InputStreamReader(CLASS_LOADER.getResourceAsStream(fileName));
+  }
+}
@@ -0,0 +1,347 @@
+package io.zeebe.flakytestextractor;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Writes Surefire XML reports for scale tests and benchmarks. The reports have the structure of
+ * reports written by Surefire 3 with rerunFailingTestsCount, and their content only depends on the
+ * seed and the configuration, so that all runs work on the same input.
+ *
+ * <p>Each report contains a single test suite. The number of flaky, error and skipped test cases of
+ * a report is the configured ratio of its test cases, rounded; their position in the report is
+ * random.
+ */
+public class SurefireReportGenerator {
+
+  private static final String PACKAGE_NAME = "io.zeebe.generated";
+
+  private static final char[] OUTPUT_CHARACTERS =
+      "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789 .,:;-_()[]{}<>&\"'\u00e4\u00f6\u00fc\u20ac"
+          .toCharArray();
+
+  /** Control characters that are not allowed in XML 1.0 documents */
+  private static final char[] ILLEGAL_CHARACTERS = {'\u0000', '\u0007', '\u001b'};
+
+  private final long seed;
+
+  private int testCases = 20;
+
+  private double flakyRatio = 0.1;
+
+  private double errorRatio = 0.05;
+
+  private double skippedRatio = 0.05;
+
+  private int properties = 50;
+
+  private int stackTraceDepth = 20;
+
+  private int systemOutBytes = 1024;
+
+  private double illegalCharacterRatio = 0;
+
+  public SurefireReportGenerator(long seed) {
+    this.seed = seed;
+  }
+
+  /**
+   * @param testCases number of test cases of each report
+   * @return this generator
+   */
+  public SurefireReportGenerator setTestCases(int testCases) {
+    this.testCases = testCases;
+    return this;
+  }
+
+  /**
+   * @param flakyRatio share of test cases that failed first and passed on rerun, between 0 and 1
+   * @return this generator
+   */
+  public SurefireReportGenerator setFlakyRatio(double flakyRatio) {
+    this.flakyRatio = flakyRatio;
+    return this;
+  }
+
+  /**
+   * @param errorRatio share of test cases that failed with an error, between 0 and 1
+   * @return this generator
+   */
+  public SurefireReportGenerator setErrorRatio(double errorRatio) {
+    this.errorRatio = errorRatio;
+    return this;
+  }
+
+  /**
+   * @param skippedRatio share of test cases that were skipped, between 0 and 1
+   * @return this generator
+   */
+  public SurefireReportGenerator setSkippedRatio(double skippedRatio) {
+    this.skippedRatio = skippedRatio;
+    return this;
+  }
+
+  /**
+   * @param properties number of entries in the {@code properties} block of each report
+   * @return this generator
+   */
+  public SurefireReportGenerator setProperties(int properties) {
+    this.properties = properties;
+    return this;
+  }
+
+  /**
+   * @param stackTraceDepth number of frames of each stack trace
+   * @return this generator
+   */
+  public SurefireReportGenerator setStackTraceDepth(int stackTraceDepth) {
+    this.stackTraceDepth = stackTraceDepth;
+    return this;
+  }
+
+  /**
+   * @param systemOutBytes number of characters of the output of each test case and each flaky run
+   * @return this generator
+   */
+  public SurefireReportGenerator setSystemOutBytes(int systemOutBytes) {
+    this.systemOutBytes = systemOutBytes;
+    return this;
+  }
+
+  /**
+   * Surefire cannot write characters that are illegal in XML 1.0 and writes {@code &amp#<code>;}
+   * instead, see SUREFIRE-456. The generated output contains these sequences at the given rate.
+   *
+   * @param illegalCharacterRatio share of output characters that are illegal, between 0 and 1
+   * @return this generator
+   */
+  public SurefireReportGenerator setIllegalCharacterRatio(double illegalCharacterRatio) {
+    this.illegalCharacterRatio = illegalCharacterRatio;
+    return this;
+  }
+
+  /** @return number of flaky test cases of each report */
+  public int getFlakyTestCases() {
+    return (int) Math.round(testCases * flakyRatio);
+  }
+
+  /** @return number of test cases with an error of each report */
+  public int getErrorTestCases() {
+    return (int) Math.round(testCases * errorRatio);
+  }
+
+  /** @return number of skipped test cases of each report */
+  public int getSkippedTestCases() {
+    return (int) Math.round(testCases * skippedRatio);
+  }
+
+  /**
+   * @param directory directory to write the reports to
+   * @param reports number of reports
+   * @return the written report files
+   * @throws IOException if a report cannot be written
+   */
+  public List<File> writeReports(File directory, int reports) throws IOException {
+    final List<File> reportFiles = new ArrayList<>(reports);
+    for (int i = 0; i < reports; i++) {
+      reportFiles.add(writeReport(directory, i));
+    }
+    return reportFiles;
+  }
+
+  /**
+   * Writes a single report. Reports with the same index are identical.
+   *
+   * @param directory directory to write the report to
+   * @param index index of the report, determines the test class name
+   * @return the written report file
+   * @throws IOException if the report cannot be written
+   */
+  public File writeReport(File directory, int index) throws IOException {
+    final Random random = new Random(seed * 31 + index);
+    final String className = PACKAGE_NAME + ".Generated" + index + "Test";
+    final File reportFile = new File(directory, "TEST-" + className + ".xml");
+
+    final List<Outcome> outcomes = outcomes(random);
+
+    try (Writer writer = Files.newBufferedWriter(reportFile.toPath(), UTF_8)) {
+      writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+      writer.write(
+          "<testsuite xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\""
+              + " xsi:noNamespaceSchemaLocation=\"https://maven.apache.org/surefire/maven-surefire-plugin/xsd/surefire-test-report-3.0.xsd\""
+              + " version=\"3.0\" name=\""
+              + className
+              + "\" time=\""
+              + time(random, 100_000)
+              + "\" tests=\""
+              + testCases
+              + "\" errors=\""
+              + getErrorTestCases()
+              + "\" skipped=\""
+              + getSkippedTestCases()
+              + "\" failures=\"0\">\n");
+      writeProperties(writer, random);
+
+      for (int i = 0; i < testCases; i++) {
+        writeTestCase(writer, random, className, "test" + i, outcomes.get(i));
+      }
+      writer.write("</testsuite>\n");
+    }
+    return reportFile;
+  }
+
+  private List<Outcome> outcomes(Random random) {
+    final List<Outcome> outcomes = new ArrayList<>(testCases);
+    for (int i = 0; i < testCases; i++) {
+      if (i < getFlakyTestCases()) {
+        outcomes.add(Outcome.FLAKY);
+      } else if (i < getFlakyTestCases() + getErrorTestCases()) {
+        outcomes.add(Outcome.ERROR);
+      } else if (i < getFlakyTestCases() + getErrorTestCases() + getSkippedTestCases()) {
+        outcomes.add(Outcome.SKIPPED);
+      } else {
+        outcomes.add(Outcome.PASSED);
+      }
+    }
+    Collections.shuffle(outcomes, random);
+    return outcomes;
+  }
+
+  private void writeProperties(Writer writer, Random random) throws IOException {
+    if (properties == 0) {
+      return;
+    }
+    writer.write("  <properties>\n");
+    for (int i = 0; i < properties; i++) {
+      writer.write("    <property name=\"generated.property." + i + "\" value=\"");
+      for (int j = 10 + random.nextInt(60); j > 0; j--) {
+        writer.write((char) ('a' + random.nextInt(26)));
+      }
+      writer.write("\"/>\n");
+    }
+    writer.write("  </properties>\n");
+  }
+
+  private void writeTestCase(
+      Writer writer, Random random, String className, String methodName, Outcome outcome)
+      throws IOException {
+    writer.write(
+        "  <testcase name=\""
+            + methodName
+            + "\" classname=\""
+            + className
+            + "\" time=\""
+            + time(random, 10_000)
+            + "\"");
+    if (outcome == Outcome.SKIPPED) {
+      writer.write(">\n    <skipped message=\"ignored\"/>\n  </testcase>\n");
+      return;
+    }
+    writer.write(">\n");
+
+    switch (outcome) {
+      case FLAKY:
+        final String element = random.nextBoolean() ? "flakyFailure" : "flakyError";
+        writer.write(
+            "    <"
+                + element
+                + " message=\"expected:&lt;1&gt; but was:&lt;2&gt;\""
+                + " type=\"java.lang.AssertionError\">\n");
+        writer.write("      <stackTrace><![CDATA[");
+        writeStackTrace(writer, random, className, methodName);
+        writer.write("]]></stackTrace>\n");
+        writeOutput(writer, random, "system-out", "      ");
+        writer.write("    </" + element + ">\n");
+        break;
+      case ERROR:
+        writer.write("    <error message=\"Oops\" type=\"java.lang.RuntimeException\"><![CDATA[");
+        writeStackTrace(writer, random, className, methodName);
+        writer.write("]]></error>\n");
+        break;
+      default:
+        break;
+    }
+
+    writeOutput(writer, random, "system-out", "    ");
+    writer.write("  </testcase>\n");
+  }
+
+  private void writeStackTrace(Writer writer, Random random, String className, String methodName)
+      throws IOException {
+    writer.write("java.lang.AssertionError: expected:<1> but was:<2>\n");
+    writer.write(
+        "\tat "
+            + className
+            + "."
+            + methodName
+            + "("
+            + className.substring(PACKAGE_NAME.length() + 1)
+            + ".java:"
+            + (1 + random.nextInt(500))
+            + ")\n");
+    for (int i = 1; i < stackTraceDepth; i++) {
+      writer.write(
+          "\tat org.generated.framework.Layer"
+              + random.nextInt(100)
+              + ".invoke"
+              + i
+              + "(Layer.java:"
+              + (1 + random.nextInt(1000))
+              + ")\n");
+    }
+  }
+
+  private void writeOutput(Writer writer, Random random, String element, String indent)
+      throws IOException {
+    if (systemOutBytes == 0) {
+      return;
+    }
+    writer.write(indent + "<" + element + "><![CDATA[");
+    char previous = 0;
+    char beforePrevious = 0;
+    for (int i = 0; i < systemOutBytes; i++) {
+      final char c;
+      if (i % 100 == 99) {
+        c = '\n';
+      } else if (illegalCharacterRatio > 0 && random.nextDouble() < illegalCharacterRatio) {
+        // see SUREFIRE-456, the escaped character is written as text into the CDATA section
+        writer.write(
+            "&amp#" + (int) ILLEGAL_CHARACTERS[random.nextInt(ILLEGAL_CHARACTERS.length)] + ";");
+        previous = 0;
+        continue;
+      } else {
+        c = OUTPUT_CHARACTERS[random.nextInt(OUTPUT_CHARACTERS.length)];
+      }
+
+      if (c == '>' && previous == ']' && beforePrevious == ']') {
+        // like Surefire, "]]>" in the output ends the CDATA section, which is then continued
+        writer.write("]]><![CDATA[>");
+      } else {
+        writer.write(c);
+      }
+      beforePrevious = previous;
+      previous = c;
+    }
+    writer.write("]]></" + element + ">\n");
+  }
+
+  private static String time(Random random, int maxMillis) {
+    return String.format(Locale.ENGLISH, "%.3f", random.nextInt(maxMillis) / 1000.0);
+  }
+
+  private enum Outcome {
+    PASSED,
+    FLAKY,
+    ERROR,
+    SKIPPED
+  }
+}
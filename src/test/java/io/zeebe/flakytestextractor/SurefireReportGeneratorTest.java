@@ -0,0 +1,69 @@
+package io.zeebe.flakytestextractor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class SurefireReportGeneratorTest {
+
+  @Rule public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  @Test
+  public void shouldWriteSameReportForSameSeed() throws Exception {
+    // given
+    final File first = tempFolder.newFolder("first");
+    final File second = tempFolder.newFolder("second");
+
+    // when
+    final File firstReport = new SurefireReportGenerator(7).writeReport(first, 3);
+    final File secondReport = new SurefireReportGenerator(7).writeReport(second, 3);
+
+    // then
+    assertThat(Files.readAllBytes(firstReport.toPath()))
+        .isEqualTo(Files.readAllBytes(secondReport.toPath()));
+  }
+
+  @Test
+  public void shouldWriteParsableReportWithConfiguredOutcomes() throws Exception {
+    // given
+    final SurefireReportGenerator generator =
+        new SurefireReportGenerator(7)
+            .setTestCases(200)
+            .setFlakyRatio(0.1)
+            .setErrorRatio(0.05)
+            .setSkippedRatio(0.025)
+            .setStackTraceDepth(5)
+            .setSystemOutBytes(300)
+            .setIllegalCharacterRatio(0.01);
+
+    // when
+    final File report = generator.writeReport(tempFolder.getRoot(), 0);
+
+    // then
+    final List<ExtendedReportTestSuite> testSuites =
+        new ExtendedTestSuiteXMLParser(new TestLogger()).parse(report.getAbsolutePath());
+    assertThat(testSuites).hasSize(1);
+
+    final ExtendedReportTestSuite testSuite = testSuites.get(0);
+    assertThat(testSuite.getNumberOfTests()).isEqualTo(200);
+    assertThat(testSuite.getNumberOfFlakes())
+        .isEqualTo(generator.getFlakyTestCases())
+        .isEqualTo(20);
+    assertThat(testSuite.getNumberOfErrors())
+        .isEqualTo(generator.getErrorTestCases())
+        .isEqualTo(10);
+    assertThat(testSuite.getNumberOfSkipped())
+        .isEqualTo(generator.getSkippedTestCases())
+        .isEqualTo(5);
+
+    final ExtendedReportTestCase flakyTestCase =
+        testSuite.getTestCases().stream().filter(ExtendedReportTestCase::isFlake).findFirst().get();
+    assertThat(flakyTestCase.getFailureDetail()).contains("\tat org.generated.framework.Layer");
+    assertThat(flakyTestCase.getSystemOut()).hasSizeGreaterThanOrEqualTo(300).contains("&amp#");
+  }
+}
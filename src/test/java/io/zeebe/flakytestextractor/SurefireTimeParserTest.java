@@ -0,0 +1,109 @@
+package io.zeebe.flakytestextractor;
+
+import static java.util.Locale.ENGLISH;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.text.NumberFormat;
+import java.text.ParseException;
+import java.util.Random;
+import org.junit.Test;
+
+public class SurefireTimeParserTest {
+
+  private static final String ALPHABET = "0123456789,,..-+Ee ١∞";
+
+  private final SurefireTimeParser sut = new SurefireTimeParser();
+
+  @Test
+  public void shouldParseSurefireTimesWithoutFallback() throws ParseException {
+    // when + then
+    assertThat(sut.parse("0")).isEqualTo(0f);
+    assertThat(sut.parse("0.012")).isEqualTo(0.012f);
+    assertThat(sut.parse("12.5")).isEqualTo(12.5f);
+    assertThat(sut.parse("1,234.5")).isEqualTo(1234.5f);
+    assertThat(sut.parse("1,234,567")).isEqualTo(1234567f);
+    assertThat(sut.parse(new StringBuilder("3.25"))).isEqualTo(3.25f);
+    assertThat(sut.getFallbacks()).isZero();
+  }
+
+  @Test
+  public void shouldFallBackOutsideOfSurefireFormat() {
+    // given
+    final String[] texts = {
+      "-1.5",
+      "-0",
+      "1E3",
+      "1.5s",
+      ".5",
+      "∞",
+      "NaN",
+      "",
+      "12345678901234567890",
+      "0.00000000000000000000001"
+    };
+
+    for (String text : texts) {
+      // when
+      final Object actual = parseOrFail(sut, text);
+
+      // then
+      assertThat(actual).describedAs(text).isEqualTo(parseWithNumberFormatOrFail(text));
+    }
+    assertThat(sut.getFallbacks()).isEqualTo(texts.length);
+  }
+
+  @Test
+  public void shouldParseLikeNumberFormat() {
+    // given
+    final Random random = new Random(25);
+
+    for (int i = 0; i < 200_000; i++) {
+      final String text = i % 2 == 0 ? randomTime(random) : randomText(random);
+
+      // when
+      final Object actual = parseOrFail(sut, text);
+
+      // then
+      final Object expected = parseWithNumberFormatOrFail(text);
+      assertThat(actual).describedAs(text).isEqualTo(expected);
+    }
+    assertThat(sut.getFallbacks()).isLessThan(200_000);
+  }
+
+  /** @return a time as Surefire writes it, with grouping separators */
+  private static String randomTime(Random random) {
+    final double time = random.nextInt(4) == 0 ? random.nextDouble() * 1e7 : random.nextDouble();
+    final String pattern = random.nextBoolean() ? "%,." : "%.";
+    return String.format(ENGLISH, pattern + random.nextInt(20) + "f", time);
+  }
+
+  private static String randomText(Random random) {
+    final StringBuilder text = new StringBuilder();
+    final int length = random.nextInt(25);
+    for (int i = 0; i < length; i++) {
+      text.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+    }
+    return text.toString();
+  }
+
+  /** @return the bits of the float, which tell apart 0 and -0, or the exception message */
+  private static Object parseOrFail(SurefireTimeParser parser, String text) {
+    try {
+      return Float.floatToRawIntBits(parser.parse(text));
+    } catch (ParseException e) {
+      return e.getMessage();
+    }
+  }
+
+  private static Object parseWithNumberFormatOrFail(String text) {
+    try {
+      return Float.floatToRawIntBits(parseWithNumberFormat(text));
+    } catch (ParseException e) {
+      return e.getMessage();
+    }
+  }
+
+  private static float parseWithNumberFormat(String text) throws ParseException {
+    return NumberFormat.getInstance(ENGLISH).parse(text).floatValue();
+  }
+}
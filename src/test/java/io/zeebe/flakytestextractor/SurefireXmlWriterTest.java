@@ -0,0 +1,125 @@
+package io.zeebe.flakytestextractor;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import org.junit.Test;
+
+public class SurefireXmlWriterTest {
+
+  private static final String LS = System.lineSeparator();
+
+  @Test
+  public void shouldIndentElementsInPrettyMode() throws IOException {
+    // when
+    final String written = write(true);
+
+    // then
+    assertThat(written)
+        .isEqualTo(
+            "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+                + LS
+                + "<testsuite name=\"a &lt;&amp;&gt; &quot;b&quot;&#10;\">"
+                + LS
+                + "  <testcase name=\"test\">"
+                + LS
+                + "    <failure type=\"java.lang.AssertionError\"/>"
+                + LS
+                + "    <system-out><![CDATA[out]]></system-out>"
+                + LS
+                + "  </testcase>"
+                + LS
+                + "</testsuite>");
+  }
+
+  @Test
+  public void shouldWriteNoWhitespaceInCompactMode() throws IOException {
+    // when
+    final String written = write(false);
+
+    // then
+    assertThat(written)
+        .isEqualTo(
+            "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+                + "<testsuite name=\"a &lt;&amp;&gt; &quot;b&quot;&#10;\">"
+                + "<testcase name=\"test\">"
+                + "<failure type=\"java.lang.AssertionError\"/>"
+                + "<system-out><![CDATA[out]]></system-out>"
+                + "</testcase>"
+                + "</testsuite>");
+  }
+
+  @Test
+  public void shouldEscapeLineBreaksInAttributesLikeSurefire() throws IOException {
+    // given
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    // when
+    try (SurefireXmlWriter writer = new SurefireXmlWriter(out, false)) {
+      writer.startElement("failure").addAttribute("message", "a\r\nb\nc\rd\te 'f'\r").endElement();
+    }
+
+    // then
+    assertThat(new String(out.toByteArray(), UTF_8))
+        .endsWith("<failure message=\"a&#10;b&#10;c&#13;d\te &apos;f&apos;&#13;\"/>");
+  }
+
+  @Test
+  public void shouldWriteTextLargerThanBuffer() throws IOException {
+    // given
+    final StringBuilder text = new StringBuilder();
+    for (int i = 0; i < 100_000; i++) {
+      text.append("\u20ac]]>\u0001");
+    }
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    // when
+    try (SurefireXmlWriter writer = new SurefireXmlWriter(out, false)) {
+      writer.startElement("system-out").writeCdata(text.toString()).endElement();
+    }
+
+    // then
+    final String expected =
+        text.toString().replace("]]>", "]]]]><![CDATA[>").replace("\u0001", "&amp#1;");
+    assertThat(new String(out.toByteArray(), UTF_8))
+        .endsWith("<system-out><![CDATA[" + expected + "]]></system-out>");
+  }
+
+  @Test
+  public void shouldEncodeTextLikeGetBytesAcrossBufferBoundaries() throws IOException {
+    // given
+    final String[] pieces = {"a", "\u00fc", "\u20ac", "\ud83d\ude00", "]", ">", "\u0001", "\ud800"};
+    final Random random = new Random(13);
+    final StringBuilder text = new StringBuilder();
+    for (int i = 0; i < 200_000; i++) {
+      text.append(pieces[random.nextInt(pieces.length)]);
+    }
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    // when
+    try (SurefireXmlWriter writer = new SurefireXmlWriter(out, false)) {
+      writer.startElement("system-out").writeCdata(text.toString()).endElement();
+    }
+
+    // then
+    final String expected =
+        text.toString().replace("]]>", "]]]]><![CDATA[>").replace("\u0001", "&amp#1;");
+    assertThat(out.toByteArray())
+        .endsWith(("<system-out><![CDATA[" + expected + "]]></system-out>").getBytes(UTF_8));
+  }
+
+  private static String write(boolean pretty) throws IOException {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (SurefireXmlWriter writer = new SurefireXmlWriter(out, pretty)) {
+      writer.startElement("testsuite").addAttribute("name", "a <&> \"b\"\n");
+      writer.startElement("testcase").addAttribute("name", "test");
+      writer.startElement("failure").addAttribute("type", "java.lang.AssertionError").endElement();
+      writer.startElement("system-out").writeCdata("out").endElement();
+      writer.endElement().endElement();
+    }
+    return new String(out.toByteArray(), UTF_8);
+  }
+}
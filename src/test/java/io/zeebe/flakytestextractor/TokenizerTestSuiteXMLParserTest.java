@@ -0,0 +1,173 @@
+package io.zeebe.flakytestextractor;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/** Compares the results of the tokenizer engine with those of the SAX engine. */
+public class TokenizerTestSuiteXMLParserTest {
+
+  private static final String[] FIXTURES = {
+    "surefire-reports/TEST-com.github.pihme.jenkinstestbed.module1.ErrorTest.xml",
+    "surefire-reports/TEST-com.github.pihme.jenkinstestbed.module1.FailingTest.xml",
+    "surefire-reports/TEST-com.github.pihme.jenkinstestbed.module1.FlakyErrorTest.xml",
+    "surefire-reports/TEST-com.github.pihme.jenkinstestbed.module1.FlakyTest.xml",
+    "surefire-reports/TEST-com.github.pihme.jenkinstestbed.module1.PassingTest.xml",
+    "invalid-xml-examples/TEST-io.zeebe.broker.it.clustering.BrokerLeaderChangeTest-it-testrun.xml"
+  };
+
+  @Rule public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  @Test
+  public void shouldParseFixturesLikeSaxEngine() throws Exception {
+    // given
+    TestUtil.copyClassPatHResourcesToFolder(FIXTURES, tempFolder.getRoot());
+
+    // when + then
+    for (File report : tempFolder.getRoot().listFiles()) {
+      assertSameResultsAsSaxEngine(report);
+    }
+  }
+
+  @Test
+  public void shouldParseGeneratedReportsWithoutFallback() throws Exception {
+    // given
+    final List<File> reports =
+        new SurefireReportGenerator(7)
+            .setTestCases(30)
+            .setFlakyRatio(0.2)
+            .setSystemOutBytes(2000)
+            .setIllegalCharacterRatio(0.01)
+            .writeReports(tempFolder.getRoot(), 5);
+
+    // when + then
+    for (File report : reports) {
+      final TokenizerTestSuiteXMLParser sut = assertSameResultsAsSaxEngine(report);
+      assertThat(sut.getFallbacks()).isZero();
+    }
+  }
+
+  @Test
+  public void shouldParseSurefireSubsetWithoutFallback() throws Exception {
+    // given
+    final File report =
+        writeReport(
+            "\ufeff<?xml version='1.0' encoding='UTF-8' standalone='no'?>\n"
+                + "<!-- written by hand -->\n"
+                + "<testsuite name=\"io.zeebe.Test\" time=\"1.5\">\n"
+                + "  <testcase name=\"a &lt;&#x3e; b\" classname=\"io.zeebe.Test\" time=\"0.5\">\n"
+                + "    <flakyFailure message=\"line&#10;break\ttab\r\nnewline ä\" type='E'>\n"
+                + "      <stackTrace><![CDATA[at io.zeebe.Test.a(Test.java:12)\r\n€]]></stackTrace>\n"
+                + "      <system-out><![CDATA[a]]]]><![CDATA[>b 😀]]></system-out>\n"
+                + "    </flakyFailure>\n"
+                + "    <system-out>&amp; then   <![CDATA[\n]]><?pi text?>some&#32;more</system-out>\n"
+                + "    <system-err/>\n"
+                + "  </testcase>\n"
+                + "</testsuite>\n");
+
+    // when
+    final TokenizerTestSuiteXMLParser sut = assertSameResultsAsSaxEngine(report);
+
+    // then
+    assertThat(sut.getFallbacks()).isZero();
+  }
+
+  @Test
+  public void shouldFallBackToSaxEngineOutsideOfSubset() throws Exception {
+    // given
+    final String[] contents = {
+      "<!DOCTYPE testsuite [<!ENTITY e \"entity\">]>\n"
+          + "<testsuite name=\"io.zeebe.Test\" time=\"1\">&e;</testsuite>",
+      "<testsuite name=\"io.zeebe.Test\" time=\"1\">\n"
+          + "  <testcase name=\"a\" time=\"1\">\n"
+          + "    <failure>java.lang.AssertionError\n"
+          + "  at io.zeebe.Test.a(Test.java:12)\n"
+          + "</failure>\n"
+          + "  </testcase>\n"
+          + "</testsuite>",
+      "<?xml version=\"1.0\" encoding=\"ISO-8859-1\"?><testsuite name=\"io.zeebe.Test\" time=\"1\"/>",
+      "<?xml version=\"1.1\"?><testsuite name=\"io.zeebe.Test\" time=\"1\"/>",
+      "<testsuite name=\"io.zeebe.Test\" time=\"1\"><täg/></testsuite>",
+      "<testsuite name=\"io.zeebe.Test\" time=\"not a number\"/>",
+      "<testsuite name=\"io.zeebe.Test\" time=\"1\"><testcase></testsuite>",
+      "<testsuite name=\"io.zeebe.Test\" time=\"1\">\u0007</testsuite>"
+    };
+
+    for (String content : contents) {
+      // when
+      final TokenizerTestSuiteXMLParser sut = assertSameResultsAsSaxEngine(writeReport(content));
+
+      // then
+      assertThat(sut.getFallbacks()).describedAs(content).isPositive();
+    }
+  }
+
+  @Test
+  public void shouldStopAtFailsafeSummary() throws Exception {
+    // given
+    final File report =
+        writeReport("<failsafe-summary result=\"255\"><completed>1</completed></failsafe-summary>");
+
+    // when
+    final TokenizerTestSuiteXMLParser sut = assertSameResultsAsSaxEngine(report);
+
+    // then
+    assertThat(sut.getFallbacks()).isZero();
+  }
+
+  /**
+   * Parses the report with both engines, in all combinations of selective capture and passthrough.
+   *
+   * @return the tokenizer used for the last combination
+   */
+  private static TokenizerTestSuiteXMLParser assertSameResultsAsSaxEngine(File report) {
+    TokenizerTestSuiteXMLParser sut = null;
+    for (boolean captureOutputOfFlakyTestsOnly : new boolean[] {false, true}) {
+      for (boolean passthrough : new boolean[] {false, true}) {
+        sut = new TokenizerTestSuiteXMLParser(new TestLogger());
+        final Object actual =
+            parse(
+                sut.setCaptureOutputOfFlakyTestsOnly(captureOutputOfFlakyTestsOnly)
+                    .setPassthrough(passthrough),
+                report);
+        final Object expected =
+            parse(
+                new ExtendedTestSuiteXMLParser(new TestLogger())
+                    .setCaptureOutputOfFlakyTestsOnly(captureOutputOfFlakyTestsOnly)
+                    .setPassthrough(passthrough),
+                report);
+
+        assertThat(actual)
+            .describedAs(
+                "%s, selective capture %s, passthrough %s",
+                report.getName(), captureOutputOfFlakyTestsOnly, passthrough)
+            .usingRecursiveComparison()
+            .isEqualTo(expected);
+      }
+    }
+    return sut;
+  }
+
+  /** @return the test suites, or the type and message of the exception */
+  private static Object parse(TestSuiteXMLParser parser, File report) {
+    try {
+      return new ArrayList<>(parser.parse(report.getAbsolutePath()));
+    } catch (Exception e) {
+      return e.getClass().getName() + ": " + e.getMessage();
+    }
+  }
+
+  private File writeReport(String content) throws IOException {
+    final File report = tempFolder.newFile();
+    Files.write(report.toPath(), content.getBytes(UTF_8));
+    return report;
+  }
+}
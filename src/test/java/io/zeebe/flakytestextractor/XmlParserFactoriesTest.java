@@ -0,0 +1,136 @@
+package io.zeebe.flakytestextractor;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import javax.xml.parsers.SAXParser;
+import javax.xml.parsers.SAXParserFactory;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXNotRecognizedException;
+
+public class XmlParserFactoriesTest {
+
+  @Rule public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  @Test
+  public void shouldNotLoadExternalDtdOrEntities() throws Exception {
+    // given
+    final File dtd =
+        writeFile("report.dtd", "<!ATTLIST flakyFailure message CDATA \"from external DTD\">");
+    final File secret = writeFile("secret.txt", "from external entity");
+    final File report =
+        writeFile(
+            "TEST-io.zeebe.Test.xml",
+            "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                + "<!DOCTYPE testsuite SYSTEM \""
+                + dtd.toURI()
+                + "\" [<!ENTITY secret SYSTEM \""
+                + secret.toURI()
+                + "\"><!ENTITY internal \"from internal subset\">]>\n"
+                + "<testsuite name=\"io.zeebe.Test\" time=\"1\">\n"
+                + "  <testcase name=\"a\" classname=\"io.zeebe.Test\" time=\"1\">\n"
+                + "    <flakyFailure type=\"java.lang.AssertionError\"/>\n"
+                + "    <system-out>&internal;&secret;</system-out>\n"
+                + "  </testcase>\n"
+                + "</testsuite>\n");
+
+    for (ParserEngine parserEngine : ParserEngine.values()) {
+      // when
+      final List<ExtendedReportTestSuite> testSuites =
+          parserEngine.createParser(new TestLogger()).parse(report.getAbsolutePath());
+
+      // then
+      final ExtendedReportTestCase testCase = testSuites.get(0).getTestCases().get(0);
+      assertThat(testCase.getFailureMessage()).describedAs(parserEngine.name()).isNull();
+      assertThat(testCase.getSystemOut())
+          .describedAs(parserEngine.name())
+          .isEqualTo("from internal subset");
+    }
+  }
+
+  @Test
+  public void shouldRejectEntityExpansionBeyondLimit() throws Exception {
+    // given
+    final StringBuilder entities = new StringBuilder("<!ENTITY e0 \"lol\">");
+    for (int i = 1; i < 10; i++) {
+      entities.append(
+          String.format("<!ENTITY e%d \"&e%d;&e%d;&e%d;&e%d;\">", i, i - 1, i - 1, i - 1, i - 1));
+    }
+    final File report =
+        writeFile(
+            "TEST-io.zeebe.Test.xml",
+            "<!DOCTYPE testsuite ["
+                + entities
+                + "]>\n<testsuite name=\"io.zeebe.Test\" time=\"1\">&e9;</testsuite>\n");
+
+    for (ParserEngine parserEngine : ParserEngine.values()) {
+      // when + then
+      assertThatThrownBy(
+              () -> parserEngine.createParser(new TestLogger()).parse(report.getAbsolutePath()))
+          .describedAs(parserEngine.name())
+          .isInstanceOf(SAXException.class);
+    }
+  }
+
+  @Test
+  public void shouldKeepEntityLimitsAfterReset() throws Exception {
+    // given
+    final SAXParser saxParser = XmlParserFactories.newSAXParser();
+
+    // when
+    saxParser.reset();
+
+    // then
+    assertThat(saxParser.getProperty("jdk.xml.entityExpansionLimit"))
+        .isEqualTo(String.valueOf(XmlParserFactories.ENTITY_EXPANSION_LIMIT));
+    assertThat(saxParser.getProperty("jdk.xml.totalEntitySizeLimit"))
+        .isEqualTo(String.valueOf(XmlParserFactories.TOTAL_ENTITY_SIZE_LIMIT));
+  }
+
+  @Test
+  public void shouldConfigureFactoryWithoutUnsupportedFeatures() {
+    // given
+    final SAXParserFactory factory = new FeaturelessSAXParserFactory();
+
+    // when
+    final SAXParserFactory configured = XmlParserFactories.configure(factory);
+
+    // then
+    assertThat(configured).isSameAs(factory);
+    assertThat(configured.isNamespaceAware()).isFalse();
+    assertThat(configured.isValidating()).isFalse();
+  }
+
+  private File writeFile(String name, String content) throws IOException {
+    final File file = tempFolder.newFile(name);
+    Files.write(file.toPath(), content.getBytes(UTF_8));
+    return file;
+  }
+
+  /** Factory of a SAX implementation that knows none of the features, like older ones */
+  private static final class FeaturelessSAXParserFactory extends SAXParserFactory {
+
+    @Override
+    public SAXParser newSAXParser() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setFeature(String name, boolean value) throws SAXNotRecognizedException {
+      throw new SAXNotRecognizedException(name);
+    }
+
+    @Override
+    public boolean getFeature(String name) throws SAXNotRecognizedException {
+      throw new SAXNotRecognizedException(name);
+    }
+  }
+}
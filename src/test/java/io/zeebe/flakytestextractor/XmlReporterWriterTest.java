@@ -0,0 +1,101 @@
+package io.zeebe.flakytestextractor;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class XmlReporterWriterTest {
+
+  @Rule public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  @Test
+  public void shouldEscapeCdataEndAndIllegalCharactersInOutput() throws IOException {
+    // when
+    final String written = writeReportWithSystemOut("a]]>b\u0000c\u001bd]]]>e");
+
+    // then
+    assertThat(written)
+        .contains(
+            "<system-out><![CDATA[a]]]]><![CDATA[>b&amp#0;c&amp#27;d]]]]]><![CDATA[>e]]></system-out>");
+  }
+
+  @Test
+  public void shouldEncodeOutputAsUtf8() throws IOException {
+    // when
+    final String written = writeReportWithSystemOut("\u00e4\u20ac\ud83d\ude00 \ud800x \udc00]]>");
+
+    // then
+    assertThat(written)
+        .contains(
+            "<system-out><![CDATA[\u00e4\u20ac\ud83d\ude00 ?x ?]]]]><![CDATA[>]]></system-out>");
+  }
+
+  @Test
+  public void shouldWriteOutputLargerThanBuffer() throws IOException {
+    // given
+    final StringBuilder output = new StringBuilder();
+    for (int i = 0; i < 10_000; i++) {
+      output.append("line ").append(i).append(" \u00fc ]]> \u0007\n");
+    }
+
+    // when
+    final String written = writeReportWithSystemOut(output.toString());
+
+    // then
+    final String expected =
+        output.toString().replace("]]>", "]]]]><![CDATA[>").replace("\u0007", "&amp#7;");
+    assertThat(written).contains("<system-out><![CDATA[" + expected + "]]></system-out>");
+  }
+
+  @Test
+  public void shouldWriteStackTraceWithIllegalCharactersAsCdata() throws IOException {
+    // given
+    final ExtendedReportTestCase testCase =
+        new ExtendedReportTestCase()
+            .setName("test")
+            .setFullClassName("io.zeebe.Test")
+            .setFailureMessage("expected:\r\n<a\u001b>")
+            .setFailureType("java.lang.AssertionError")
+            .setFailureDetail("<a\u001b>\n]]>");
+    testCase.setFailureErrorLine("1");
+
+    // when
+    final String written = writeReport(testCase);
+
+    // then
+    assertThat(written)
+        .contains(
+            "<failure message=\"expected:&#10;&lt;a&amp;#27;&gt;\" type=\"java.lang.AssertionError\">"
+                + "<![CDATA[<a&amp#27;>\n]]]]><![CDATA[>]]></failure>");
+  }
+
+  private String writeReportWithSystemOut(String systemOut) throws IOException {
+    return writeReport(
+        new ExtendedReportTestCase()
+            .setName("test")
+            .setFullClassName("io.zeebe.Test")
+            .setSystemOut(systemOut));
+  }
+
+  private String writeReport(ExtendedReportTestCase testCase) throws IOException {
+    final ExtendedReportTestSuite testSuite =
+        new ExtendedReportTestSuite().setFullClassName("io.zeebe.Test").setNumberOfTests(1);
+    testSuite.getTestCases().add(testCase);
+    final List<ExtendedReportTestSuite> testSuites = Collections.singletonList(testSuite);
+
+    final XmlReporterWriter writer = new XmlReporterWriter(tempFolder.getRoot());
+    final File originalReport = new File(tempFolder.getRoot(), "TEST-io.zeebe.Test.xml");
+    writer.writeXMLReport(originalReport, testSuites);
+
+    return new String(
+        Files.readAllBytes(writer.getFlakyReportFile(originalReport).toPath()), UTF_8);
+  }
+}